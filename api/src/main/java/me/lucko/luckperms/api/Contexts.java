@@ -22,6 +22,9 @@
 
 package me.lucko.luckperms.api;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
 import me.lucko.luckperms.api.context.ContextSet;
 
 /**
@@ -34,7 +37,8 @@ import me.lucko.luckperms.api.context.ContextSet;
 public class Contexts {
     public static final String SERVER_KEY = "server";
     public static final String WORLD_KEY = "world";
-    private static final Contexts ALLOW_ALL = new Contexts(ContextSet.empty(), true, true, true, true, true, true);
+    private static final Interner<Contexts> INTERNER = Interners.newWeakInterner();
+    private static final Contexts ALLOW_ALL = of(ContextSet.empty(), true, true, true, true, true, true);
 
     /**
      * Gets a context that will allow all nodes
@@ -45,8 +49,23 @@ public class Contexts {
         return ALLOW_ALL;
     }
 
+    /**
+     * Gets a canonical Contexts instance for the given context and options.
+     *
+     * <p>Equal instances returned by this method will usually be the same instance, making them cheaper to use as
+     * cache keys than instances created using the constructor.</p>
+     *
+     * @param context the contexts that apply for the lookup
+     * @param includeGlobal if global or non server specific nodes should be applied
+     * @param includeGlobalWorld if global or non world specific nodes should be applied
+     * @param applyGroups if parent groups should be applied
+     * @param applyGlobalGroups if global or non server specific group memberships should be applied
+     * @param applyGlobalWorldGroups if global or non world specific group memberships should be applied
+     * @param op if OP defaults should be included
+     * @return an interned Contexts instance
+     */
     public static Contexts of(ContextSet context, boolean includeGlobal, boolean includeGlobalWorld, boolean applyGroups, boolean applyGlobalGroups, boolean applyGlobalWorldGroups, boolean op) {
-        return new Contexts(context, includeGlobal, includeGlobalWorld, applyGroups, applyGlobalGroups, applyGlobalWorldGroups, op);
+        return INTERNER.intern(new Contexts(context, includeGlobal, includeGlobalWorld, applyGroups, applyGlobalGroups, applyGlobalWorldGroups, op));
     }
 
     /**
@@ -87,6 +106,11 @@ public class Contexts {
      */
     private final boolean applyGlobalWorldGroups;
 
+    /**
+     * The cached hashcode of this instance, all values are immutable.
+     */
+    private final int hashCode;
+
     public Contexts(ContextSet context, boolean includeGlobal, boolean includeGlobalWorld, boolean applyGroups, boolean applyGlobalGroups, boolean applyGlobalWorldGroups, boolean op) {
         if (context == null) {
             throw new NullPointerException("context");
@@ -99,6 +123,7 @@ public class Contexts {
         this.applyGlobalGroups = applyGlobalGroups;
         this.applyGlobalWorldGroups = applyGlobalWorldGroups;
         this.op = op;
+        this.hashCode = calculateHashCode();
     }
 
     /**
@@ -192,6 +217,7 @@ public class Contexts {
         if (o == this) return true;
         if (!(o instanceof Contexts)) return false;
         final Contexts other = (Contexts) o;
+        if (this.hashCode != other.hashCode) return false;
         return (this.getContexts() == null ? other.getContexts() == null : this.getContexts().equals(other.getContexts())) &&
                 this.isOp() == other.isOp() &&
                 this.isIncludeGlobal() == other.isIncludeGlobal() &&
@@ -208,16 +234,20 @@ public class Contexts {
      * @since 2.12
      */
     public int hashCode() {
+        return this.hashCode;
+    }
+
+    private int calculateHashCode() {
         final int PRIME = 59;
         int result = 1;
-        final Object contexts = this.getContexts();
+        final Object contexts = this.context;
         result = result * PRIME + (contexts == null ? 43 : contexts.hashCode());
-        result = result * PRIME + (this.isOp() ? 79 : 97);
-        result = result * PRIME + (this.isIncludeGlobal() ? 79 : 97);
-        result = result * PRIME + (this.isIncludeGlobalWorld() ? 79 : 97);
-        result = result * PRIME + (this.isApplyGroups() ? 79 : 97);
-        result = result * PRIME + (this.isApplyGlobalGroups() ? 79 : 97);
-        result = result * PRIME + (this.isApplyGlobalWorldGroups() ? 79 : 97);
+        result = result * PRIME + (this.op ? 79 : 97);
+        result = result * PRIME + (this.includeGlobal ? 79 : 97);
+        result = result * PRIME + (this.includeGlobalWorld ? 79 : 97);
+        result = result * PRIME + (this.applyGroups ? 79 : 97);
+        result = result * PRIME + (this.applyGlobalGroups ? 79 : 97);
+        result = result * PRIME + (this.applyGlobalWorldGroups ? 79 : 97);
         return result;
     }
 
@@ -266,6 +266,18 @@ public interface LuckPermsApi {
      */
     void registerContextCalculator(ContextCalculator<?> contextCalculator);
 
+    /**
+     * Signals that the contexts applicable to a player have changed, and should be recalculated.
+     *
+     * <p>Signal driven {@link ContextCalculator}s should call this method whenever the contexts they provide
+     * for a player change.</p>
+     *
+     * @param player the player to invalidate contexts for. Must be the player instance for the platform.
+     * @throws ClassCastException if the type is not the player class of the platform.
+     * @since 3.1
+     */
+    void signalContextUpdate(Object player);
+
     /**
      * Gets a calculated context instance for the user using the rules of the platform.
      *
@@ -281,6 +293,7 @@ public interface LuckPermsApi {
      *
      * @param player the player to calculate for. Must be the player instance for the platform.
      * @return a set of contexts.
+     * @throws ClassCastException if the type is not the player class of the platform.
      * @since 2.17
      */
     ContextSet getContextForPlayer(Object player);
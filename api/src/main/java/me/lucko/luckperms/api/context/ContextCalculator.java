@@ -40,4 +40,21 @@ public interface ContextCalculator<T> {
      */
     MutableContextSet giveApplicableContext(T subject, MutableContextSet accumulator);
 
+    /**
+     * Gets if this calculator is signal driven.
+     *
+     * <p>The contexts provided by a signal driven calculator only change when the calculator signals an update using
+     * {@link me.lucko.luckperms.api.LuckPermsApi#signalContextUpdate(Object)}. This allows them to be cached
+     * indefinitely.</p>
+     *
+     * <p>Calculators which are not signal driven are polled, and contexts are recalculated at a short, configurable
+     * interval.</p>
+     *
+     * @return true if this calculator is signal driven
+     * @since 3.1
+     */
+    default boolean isSignalDriven() {
+        return false;
+    }
+
 }
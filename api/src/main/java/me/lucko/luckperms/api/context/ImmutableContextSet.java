@@ -25,6 +25,8 @@ package me.lucko.luckperms.api.context;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.SetMultimap;
 
@@ -35,10 +37,26 @@ import java.util.Set;
 /**
  * An immutable implementation of {@link ContextSet}.
  *
+ * <p>Instances are interned, so equal sets will usually be the same instance.</p>
+ *
  * @since 2.16
  */
 public final class ImmutableContextSet implements ContextSet {
-    private static final ImmutableContextSet EMPTY = new ImmutableContextSet(ImmutableSetMultimap.of());
+    private static final Interner<ImmutableContextSet> INTERNER = Interners.newWeakInterner();
+    private static final ImmutableContextSet EMPTY = INTERNER.intern(new ImmutableContextSet(ImmutableSetMultimap.of()));
+
+    /**
+     * Gets the canonical instance of a context set with the given contents
+     *
+     * @param contexts the contexts
+     * @return an interned ImmutableContextSet
+     */
+    static ImmutableContextSet intern(Multimap<String, String> contexts) {
+        if (contexts.isEmpty()) {
+            return EMPTY;
+        }
+        return INTERNER.intern(new ImmutableContextSet(contexts));
+    }
 
     /**
      * Creates an ImmutableContextSet from a context pair
@@ -56,7 +74,7 @@ public final class ImmutableContextSet implements ContextSet {
             throw new NullPointerException("value");
         }
 
-        return new ImmutableContextSet(ImmutableSetMultimap.of(key.toLowerCase(), value));
+        return intern(ImmutableSetMultimap.of(key.toLowerCase(), value));
     }
 
     /**
@@ -84,7 +102,7 @@ public final class ImmutableContextSet implements ContextSet {
             throw new NullPointerException("value2");
         }
 
-        return new ImmutableContextSet(ImmutableSetMultimap.of(key1.toLowerCase(), value1, key2.toLowerCase(), value2));
+        return intern(ImmutableSetMultimap.of(key1.toLowerCase(), value1, key2.toLowerCase(), value2));
     }
 
     /**
@@ -104,7 +122,7 @@ public final class ImmutableContextSet implements ContextSet {
             b.put(e.getKey().toLowerCase(), e.getValue());
         }
 
-        return new ImmutableContextSet(b.build());
+        return intern(b.build());
     }
 
     /**
@@ -159,9 +177,11 @@ public final class ImmutableContextSet implements ContextSet {
     }
 
     private final SetMultimap<String, String> map;
+    private final int hashCode;
 
-    ImmutableContextSet(Multimap<String, String> contexts) {
+    private ImmutableContextSet(Multimap<String, String> contexts) {
         this.map = ImmutableSetMultimap.copyOf(contexts);
+        this.hashCode = 59 + this.map.hashCode();
     }
 
     @Override
@@ -267,6 +287,7 @@ public final class ImmutableContextSet implements ContextSet {
     public boolean equals(Object o) {
         if (o == this) return true;
         if (!(o instanceof ContextSet)) return false;
+        if (o instanceof ImmutableContextSet && this.hashCode != o.hashCode()) return false;
         final ContextSet other = (ContextSet) o;
 
         final Multimap<String, String> thisContexts = this.toMultimap();
@@ -276,7 +297,7 @@ public final class ImmutableContextSet implements ContextSet {
 
     @Override
     public int hashCode() {
-        return 59 + (this.map == null ? 43 : this.map.hashCode());
+        return this.hashCode;
     }
 
     @Override
@@ -185,7 +185,7 @@ public final class MutableContextSet implements ContextSet {
 
     @Override
     public ImmutableContextSet makeImmutable() {
-        return new ImmutableContextSet(map);
+        return ImmutableContextSet.intern(map);
     }
 
     @Override
@@ -41,6 +41,7 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.server.PluginEnableEvent;
@@ -213,6 +214,14 @@ public class BukkitListener implements Listener {
         plugin.refreshAutoOp(e.getPlayer());
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoinMonitor(PlayerJoinEvent e) {
+        /* The world calculator is signal driven, so contexts are cached until the player changes world.
+           Contexts calculated during login may have been formed before the player was moved to their
+           spawn location, which doesn't fire a world change, so they're recalculated once join has finished. */
+        plugin.getContextManager().invalidateCache(e.getPlayer());
+    }
+
     // Wait until the last priority to unload, so plugins can still perform permission checks on this event
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerQuit(PlayerQuitEvent e) {
@@ -257,6 +266,7 @@ public class BukkitListener implements Listener {
 
     @EventHandler
     public void onWorldChange(PlayerChangedWorldEvent e) {
+        plugin.getContextManager().invalidateCache(e.getPlayer());
         plugin.refreshAutoOp(e.getPlayer());
     }
 }
@@ -42,6 +42,7 @@ import me.lucko.luckperms.bukkit.model.LPPermissible;
 import me.lucko.luckperms.bukkit.vault.VaultHook;
 import me.lucko.luckperms.common.api.ApiHandler;
 import me.lucko.luckperms.common.api.ApiProvider;
+import me.lucko.luckperms.common.caching.ProfileCache;
 import me.lucko.luckperms.common.caching.handlers.CachedStateManager;
 import me.lucko.luckperms.common.calculators.CalculatorFactory;
 import me.lucko.luckperms.common.commands.sender.Sender;
@@ -125,6 +126,7 @@ public class LPBukkitPlugin extends JavaPlugin implements LuckPermsPlugin {
     private ChildPermissionProvider childPermissionProvider;
     private LocaleManager localeManager;
     private CachedStateManager cachedStateManager;
+    private ProfileCache profileCache;
     private ContextManager<Player> contextManager;
     private WorldCalculator worldCalculator;
     private CalculatorFactory calculatorFactory;
@@ -285,8 +287,9 @@ public class LPBukkitPlugin extends JavaPlugin implements LuckPermsPlugin {
         trackManager = new GenericTrackManager(this);
         calculatorFactory = new BukkitCalculatorFactory(this);
         cachedStateManager = new CachedStateManager(this);
+        profileCache = new ProfileCache();
 
-        contextManager = new ContextManager<>();
+        contextManager = new BukkitContextManager(this);
         worldCalculator = new WorldCalculator(this);
         contextManager.registerCalculator(worldCalculator);
 
@@ -422,6 +425,7 @@ public class LPBukkitPlugin extends JavaPlugin implements LuckPermsPlugin {
         childPermissionProvider = null;
         localeManager = null;
         cachedStateManager = null;
+        profileCache = null;
         contextManager = null;
         worldCalculator = null;
         calculatorFactory = null;
@@ -473,7 +477,7 @@ public class LPBukkitPlugin extends JavaPlugin implements LuckPermsPlugin {
                     return;
                 }
 
-                Map<String, Boolean> backing = user.getUserData().getPermissionData(permissible.calculateContexts()).getImmutableBacking();
+                Map<String, Boolean> backing = permissible.getContextSnapshot().getPermissionData().getImmutableBacking();
                 boolean op = Optional.ofNullable(backing.get("luckperms.autoop")).orElse(false);
                 player.setOp(op);
             } catch (Exception ignored) {}
@@ -521,15 +525,7 @@ public class LPBukkitPlugin extends JavaPlugin implements LuckPermsPlugin {
         if (player == null) {
             return null;
         }
-        return new Contexts(
-                getContextManager().getApplicableContext(player),
-                getConfiguration().get(ConfigKeys.INCLUDING_GLOBAL_PERMS),
-                getConfiguration().get(ConfigKeys.INCLUDING_GLOBAL_WORLD_PERMS),
-                true,
-                getConfiguration().get(ConfigKeys.APPLYING_GLOBAL_GROUPS),
-                getConfiguration().get(ConfigKeys.APPLYING_GLOBAL_WORLD_GROUPS),
-                player.isOp()
-        );
+        return contextManager.getApplicableContexts(player);
     }
 
     @Override
@@ -50,4 +50,10 @@ public class WorldCalculator implements ContextCalculator<Player> {
 
         return accumulator;
     }
+
+    @Override
+    public boolean isSignalDriven() {
+        // signalled by BukkitListener when a player changes world
+        return true;
+    }
 }
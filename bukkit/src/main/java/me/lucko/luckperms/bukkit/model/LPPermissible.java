@@ -33,7 +33,8 @@ import me.lucko.luckperms.api.Contexts;
 import me.lucko.luckperms.api.Tristate;
 import me.lucko.luckperms.bukkit.LPBukkitPlugin;
 import me.lucko.luckperms.common.caching.UserCache;
-import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.contexts.ContextSnapshot;
+import me.lucko.luckperms.common.contexts.ContextSnapshotHolder;
 import me.lucko.luckperms.common.core.model.User;
 
 import org.bukkit.Bukkit;
@@ -67,6 +68,9 @@ public class LPPermissible extends PermissibleBase {
     private final LPBukkitPlugin plugin;
     private final SubscriptionManager subscriptions;
 
+    // Holds the players active contexts & the permission data for them.
+    private final ContextSnapshotHolder<Player> contextSnapshotHolder;
+
     @Setter
     private PermissibleBase oldPermissible = null;
 
@@ -82,6 +86,7 @@ public class LPPermissible extends PermissibleBase {
         this.parent = parent;
         this.plugin = plugin;
         this.subscriptions = new SubscriptionManager(this);
+        this.contextSnapshotHolder = plugin.getContextManager().getSnapshotHolder(parent);
 
         // recalculatePermissions();
     }
@@ -104,7 +109,7 @@ public class LPPermissible extends PermissibleBase {
             return;
         }
 
-        Set<String> ent = new HashSet<>(cache.getPermissionData(calculateContexts()).getImmutableBacking().keySet());
+        Set<String> ent = new HashSet<>(getContextSnapshot().getPermissionData().getImmutableBacking().keySet());
 
         if (parent.isOp()) {
             ent.addAll(plugin.getDefaultsProvider().getOpDefaults().keySet());
@@ -127,16 +132,12 @@ public class LPPermissible extends PermissibleBase {
         this.attachments.addAll(attachments);
     }
 
+    public ContextSnapshot getContextSnapshot() {
+        return contextSnapshotHolder.getSnapshot(parent, user);
+    }
+
     public Contexts calculateContexts() {
-        return new Contexts(
-                plugin.getContextManager().getApplicableContext(parent),
-                plugin.getConfiguration().get(ConfigKeys.INCLUDING_GLOBAL_PERMS),
-                plugin.getConfiguration().get(ConfigKeys.INCLUDING_GLOBAL_WORLD_PERMS),
-                true,
-                plugin.getConfiguration().get(ConfigKeys.APPLYING_GLOBAL_GROUPS),
-                plugin.getConfiguration().get(ConfigKeys.APPLYING_GLOBAL_WORLD_GROUPS),
-                parent.isOp()
-        );
+        return getContextSnapshot().getContexts();
     }
 
     @Override
@@ -146,7 +147,7 @@ public class LPPermissible extends PermissibleBase {
 
     @Override
     public boolean isPermissionSet(@NonNull String name) {
-        return user.getUserData().getPermissionData(calculateContexts()).getPermissionValue(name) != Tristate.UNDEFINED;
+        return getContextSnapshot().getPermissionData().getPermissionValue(name) != Tristate.UNDEFINED;
     }
 
     @Override
@@ -156,7 +157,7 @@ public class LPPermissible extends PermissibleBase {
 
     @Override
     public boolean hasPermission(@NonNull String name) {
-        Tristate ts = user.getUserData().getPermissionData(calculateContexts()).getPermissionValue(name);
+        Tristate ts = getContextSnapshot().getPermissionData().getPermissionValue(name);
         if (ts != Tristate.UNDEFINED) {
             return ts.asBoolean();
         }
@@ -166,7 +167,7 @@ public class LPPermissible extends PermissibleBase {
 
     @Override
     public boolean hasPermission(@NonNull Permission perm) {
-        Tristate ts = user.getUserData().getPermissionData(calculateContexts()).getPermissionValue(perm.getName());
+        Tristate ts = getContextSnapshot().getPermissionData().getPermissionValue(perm.getName());
         if (ts != Tristate.UNDEFINED) {
             return ts.asBoolean();
         }
@@ -180,7 +181,7 @@ public class LPPermissible extends PermissibleBase {
         perms.addAll(attachmentPermissions.values());
 
         perms.addAll(
-                user.getUserData().getPermissionData(calculateContexts()).getImmutableBacking().entrySet().stream()
+                getContextSnapshot().getPermissionData().getImmutableBacking().entrySet().stream()
                         .map(e -> new PermissionAttachmentInfo(parent, e.getKey(), null, e.getValue()))
                         .collect(Collectors.toList())
         );
@@ -272,6 +273,9 @@ public class LPPermissible extends PermissibleBase {
             return;
         }
 
+        // the players op status may have changed
+        contextSnapshotHolder.invalidate();
+
         attachmentPermissions.clear();
 
         for (PermissionAttachment attachment : attachments) {
@@ -144,7 +144,7 @@ public class VaultPermissionHook extends Permission {
         }
         if (holder instanceof Group) {
             Group g = (Group) holder;
-            plugin.getStorage().saveGroup(g).thenRunAsync(() -> plugin.getUpdateTaskBuffer().request(), plugin.getScheduler().getAsyncExecutor());
+            plugin.getStorage().saveGroup(g);
         }
     }
 
@@ -154,7 +154,7 @@ public class VaultPermissionHook extends Permission {
             context.add("world", world);
         }
         context.add("server", getServer());
-        return new Contexts(context, isIncludeGlobal(), true, true, true, true, false);
+        return Contexts.of(context, isIncludeGlobal(), true, true, true, true, false);
     }
 
     public Contexts createContextForWorldLookup(String world) {
@@ -164,7 +164,7 @@ public class VaultPermissionHook extends Permission {
         }
         context.add("server", getServer());
         context.addAll(plugin.getConfiguration().getContextsFile().getStaticContexts());
-        return new Contexts(context, isIncludeGlobal(), true, true, true, true, false);
+        return Contexts.of(context, isIncludeGlobal(), true, true, true, true, false);
     }
 
     public Contexts createContextForWorldLookup(Player player, String world) {
@@ -189,7 +189,7 @@ public class VaultPermissionHook extends Permission {
         }
         context.add("server", getServer());
 
-        return new Contexts(context, isIncludeGlobal(), true, true, true, true, false);
+        return Contexts.of(context, isIncludeGlobal(), true, true, true, true, false);
     }
 
     @Override
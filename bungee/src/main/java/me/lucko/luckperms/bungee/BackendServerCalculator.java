@@ -54,4 +54,10 @@ public class BackendServerCalculator implements ContextCalculator<ProxiedPlayer>
 
         return accumulator;
     }
+
+    @Override
+    public boolean isSignalDriven() {
+        // signalled by BungeeListener when a player switches server
+        return true;
+    }
 }
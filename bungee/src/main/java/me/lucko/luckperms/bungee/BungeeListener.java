@@ -43,6 +43,7 @@ import net.md_5.bungee.api.event.PermissionCheckEvent;
 import net.md_5.bungee.api.event.PlayerDisconnectEvent;
 import net.md_5.bungee.api.event.PostLoginEvent;
 import net.md_5.bungee.api.event.ServerConnectEvent;
+import net.md_5.bungee.api.event.ServerSwitchEvent;
 import net.md_5.bungee.api.plugin.Listener;
 import net.md_5.bungee.event.EventHandler;
 import net.md_5.bungee.event.EventPriority;
@@ -165,17 +166,7 @@ public class BungeeListener implements Listener {
             return;
         }
 
-        Contexts contexts = new Contexts(
-                plugin.getContextManager().getApplicableContext(player),
-                plugin.getConfiguration().get(ConfigKeys.INCLUDING_GLOBAL_PERMS),
-                plugin.getConfiguration().get(ConfigKeys.INCLUDING_GLOBAL_WORLD_PERMS),
-                true,
-                plugin.getConfiguration().get(ConfigKeys.APPLYING_GLOBAL_GROUPS),
-                plugin.getConfiguration().get(ConfigKeys.APPLYING_GLOBAL_WORLD_GROUPS),
-                false
-        );
-
-        Tristate result = user.getUserData().getPermissionData(contexts).getPermissionValue(e.getPermission());
+        Tristate result = plugin.getContextManager().getSnapshot(player, user).getPermissionData().getPermissionValue(e.getPermission());
         if (result == Tristate.UNDEFINED && plugin.getConfiguration().get(ConfigKeys.APPLY_BUNGEE_CONFIG_PERMISSIONS)) {
             return; // just use the result provided by the proxy when the event was created
         }
@@ -212,4 +203,10 @@ public class BungeeListener implements Listener {
             user.getUserData().preCalculate(contexts);
         });
     }
+
+    // The backend server is provided by a signal driven calculator, so we need to let the context manager know
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onServerSwitchComplete(ServerSwitchEvent e) {
+        plugin.getContextManager().invalidateCache(e.getPlayer());
+    }
 }
@@ -34,6 +34,7 @@ import me.lucko.luckperms.api.context.ContextSet;
 import me.lucko.luckperms.bungee.messaging.BungeeMessagingService;
 import me.lucko.luckperms.common.api.ApiHandler;
 import me.lucko.luckperms.common.api.ApiProvider;
+import me.lucko.luckperms.common.caching.ProfileCache;
 import me.lucko.luckperms.common.caching.handlers.CachedStateManager;
 import me.lucko.luckperms.common.calculators.CalculatorFactory;
 import me.lucko.luckperms.common.commands.CommandManager;
@@ -102,6 +103,7 @@ public class LPBungeePlugin extends Plugin implements LuckPermsPlugin {
     private Logger log;
     private LocaleManager localeManager;
     private CachedStateManager cachedStateManager;
+    private ProfileCache profileCache;
     private ContextManager<ProxiedPlayer> contextManager;
     private CalculatorFactory calculatorFactory;
     private BufferedRequest<Void> updateTaskBuffer;
@@ -216,8 +218,9 @@ public class LPBungeePlugin extends Plugin implements LuckPermsPlugin {
         trackManager = new GenericTrackManager(this);
         calculatorFactory = new BungeeCalculatorFactory(this);
         cachedStateManager = new CachedStateManager(this);
+        profileCache = new ProfileCache();
 
-        contextManager = new ContextManager<>();
+        contextManager = new BungeeContextManager(this);
         BackendServerCalculator serverCalculator = new BackendServerCalculator(this);
         contextManager.registerCalculator(serverCalculator);
 
@@ -310,15 +313,7 @@ public class LPBungeePlugin extends Plugin implements LuckPermsPlugin {
         if (player == null) {
             return null;
         }
-        return new Contexts(
-                getContextManager().getApplicableContext(player),
-                getConfiguration().get(ConfigKeys.INCLUDING_GLOBAL_PERMS),
-                getConfiguration().get(ConfigKeys.INCLUDING_GLOBAL_WORLD_PERMS),
-                true,
-                getConfiguration().get(ConfigKeys.APPLYING_GLOBAL_GROUPS),
-                getConfiguration().get(ConfigKeys.APPLYING_GLOBAL_WORLD_GROUPS),
-                false
-        );
+        return contextManager.getApplicableContexts(player);
     }
 
     @Override
@@ -87,9 +87,9 @@ public class BungeeMessagingService extends AbstractMessagingService implements
         ByteArrayDataInput in = ByteStreams.newDataInput(e.getData());
         String msg = in.readUTF();
 
-        onMessage(e.getTag(), msg, u -> {
+        onMessage(e.getTag(), msg, m -> {
             // Forward to other servers
-            plugin.doAsync(() -> sendMessage(CHANNEL, "update:" + u.toString()));
+            plugin.doAsync(() -> sendMessage(CHANNEL, m));
         });
     }
 }
@@ -45,6 +45,7 @@ import me.lucko.luckperms.api.context.ContextCalculator;
 import me.lucko.luckperms.api.context.ContextSet;
 import me.lucko.luckperms.common.api.delegates.NodeFactoryDelegate;
 import me.lucko.luckperms.common.api.delegates.UserDelegate;
+import me.lucko.luckperms.common.contexts.ContextManager;
 import me.lucko.luckperms.common.core.UserIdentifier;
 import me.lucko.luckperms.common.event.EventFactory;
 import me.lucko.luckperms.common.event.LuckPermsEventBus;
@@ -216,14 +217,29 @@ public class ApiProvider implements LuckPermsApi {
         plugin.getContextManager().registerCalculator(contextCalculator);
     }
 
+    @Override
+    public void signalContextUpdate(Object player) {
+        ContextManager<?> contextManager = plugin.getContextManager();
+        invalidateCache(contextManager, player);
+    }
+
     @Override
     public Optional<Contexts> getContextForUser(User user) {
         return Optional.ofNullable(plugin.getContextForUser(UserDelegate.cast(user)));
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public ContextSet getContextForPlayer(Object player) {
-        return plugin.getContextManager().getApplicableContext(player);
+        ContextManager<?> contextManager = plugin.getContextManager();
+        return getApplicableContext(contextManager, player);
+    }
+
+    private static <T> void invalidateCache(ContextManager<T> contextManager, Object player) {
+        // the caches would otherwise silently ignore an object of the wrong type
+        contextManager.invalidateCache(contextManager.getSubjectClass().cast(player));
+    }
+
+    private static <T> ContextSet getApplicableContext(ContextManager<T> contextManager, Object player) {
+        return contextManager.getApplicableContext(contextManager.getSubjectClass().cast(player));
     }
 }
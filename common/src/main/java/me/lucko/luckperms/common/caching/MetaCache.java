@@ -25,6 +25,7 @@
 
 package me.lucko.luckperms.common.caching;
 
+import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 
@@ -37,62 +38,90 @@ import me.lucko.luckperms.common.caching.stacking.NoopMetaStack;
 
 import java.util.Map;
 import java.util.SortedMap;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Holds a user's cached meta for a given context
  */
 @NoArgsConstructor
 public class MetaCache implements MetaData {
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
-    @Getter
-    private Map<String, String> meta = ImmutableMap.of();
+    /**
+     * The current state of the cache. Replaced as a whole by {@link #loadMeta(MetaAccumulator)}, so readers always
+     * see a consistent view without locking.
+     */
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
 
-    @Getter
-    private SortedMap<Integer, String> prefixes = ImmutableSortedMap.of();
+    public void loadMeta(MetaAccumulator meta) {
+        MetaStack prefixStack = meta.getPrefixStack();
+        MetaStack suffixStack = meta.getSuffixStack();
 
-    @Getter
-    private SortedMap<Integer, String> suffixes = ImmutableSortedMap.of();
+        this.snapshot = new Snapshot(
+                ImmutableMap.copyOf(meta.getMeta()),
+                ImmutableSortedMap.copyOfSorted(meta.getPrefixes()),
+                ImmutableSortedMap.copyOfSorted(meta.getSuffixes()),
+                prefixStack,
+                suffixStack,
+                prefixStack.toFormattedString(),
+                suffixStack.toFormattedString()
+        );
+    }
 
-    @Getter
-    private MetaStack prefixStack = NoopMetaStack.INSTANCE;
+    /**
+     * Adopts the current state of another cache. The state is immutable, so it is shared rather than copied.
+     *
+     * @param other the cache to load the state of
+     */
+    public void loadMeta(MetaCache other) {
+        this.snapshot = other.snapshot;
+    }
 
-    @Getter
-    private MetaStack suffixStack = NoopMetaStack.INSTANCE;
+    @Override
+    public Map<String, String> getMeta() {
+        return snapshot.getMeta();
+    }
 
-    public void loadMeta(MetaAccumulator meta) {
-        lock.writeLock().lock();
-        try {
-            this.meta = ImmutableMap.copyOf(meta.getMeta());
-            this.prefixes = ImmutableSortedMap.copyOfSorted(meta.getPrefixes());
-            this.suffixes = ImmutableSortedMap.copyOfSorted(meta.getSuffixes());
-            this.prefixStack = meta.getPrefixStack();
-            this.suffixStack = meta.getSuffixStack();
-        } finally {
-            lock.writeLock().unlock();
-        }
+    @Override
+    public SortedMap<Integer, String> getPrefixes() {
+        return snapshot.getPrefixes();
+    }
+
+    @Override
+    public SortedMap<Integer, String> getSuffixes() {
+        return snapshot.getSuffixes();
+    }
+
+    public MetaStack getPrefixStack() {
+        return snapshot.getPrefixStack();
+    }
+
+    public MetaStack getSuffixStack() {
+        return snapshot.getSuffixStack();
     }
 
     @Override
     public String getPrefix() {
-        lock.readLock().lock();
-        try {
-            return prefixStack.toFormattedString();
-        } finally {
-            lock.readLock().unlock();
-        }
+        return snapshot.getPrefix();
     }
 
     @Override
     public String getSuffix() {
-        lock.readLock().lock();
-        try {
-            return suffixStack.toFormattedString();
-        } finally {
-            lock.readLock().unlock();
-        }
+        return snapshot.getSuffix();
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(ImmutableMap.of(), ImmutableSortedMap.of(), ImmutableSortedMap.of(), NoopMetaStack.INSTANCE, NoopMetaStack.INSTANCE, null, null);
+
+        private final Map<String, String> meta;
+        private final SortedMap<Integer, String> prefixes;
+        private final SortedMap<Integer, String> suffixes;
+        private final MetaStack prefixStack;
+        private final MetaStack suffixStack;
+
+        // formatted once when the snapshot is created, nullable
+        private final String prefix;
+        private final String suffix;
     }
 
 }
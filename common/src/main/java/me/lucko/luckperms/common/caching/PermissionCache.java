@@ -37,7 +37,6 @@ import me.lucko.luckperms.common.calculators.PermissionCalculator;
 import me.lucko.luckperms.common.core.model.User;
 
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Holds a user's cached permissions for a given context
@@ -45,9 +44,9 @@ import java.util.concurrent.ConcurrentHashMap;
 public class PermissionCache implements PermissionData {
 
     /**
-     * The raw set of permission strings.
+     * The raw set of permission strings. Usually shared with other users who hold the same nodes.
      */
-    private final Map<String, Boolean> permissions;
+    private volatile Map<String, Boolean> permissions = ImmutableMap.of();
 
     /**
      * The calculator instance responsible for resolving the raw permission strings in the permission map.
@@ -56,8 +55,12 @@ public class PermissionCache implements PermissionData {
      */
     private final PermissionCalculator calculator;
 
+    /**
+     * If this instance has been removed from its {@link UserCache}, and will therefore no longer be updated.
+     */
+    private volatile boolean discarded = false;
+
     public PermissionCache(Contexts contexts, User user, CalculatorFactory calculatorFactory) {
-        permissions = new ConcurrentHashMap<>();
         calculator = calculatorFactory.build(contexts, user);
         calculator.updateBacking(permissions); // Initial setup.
     }
@@ -67,9 +70,16 @@ public class PermissionCache implements PermissionData {
         calculator.invalidateCache();
     }
 
+    public boolean isDiscarded() {
+        return discarded;
+    }
+
+    void discard() {
+        discarded = true;
+    }
+
     public void setPermissions(Map<String, Boolean> permissions) {
-        this.permissions.clear();
-        this.permissions.putAll(permissions);
+        this.permissions = ImmutableMap.copyOf(permissions);
         calculator.updateBacking(this.permissions);
         invalidateCache();
     }
@@ -82,7 +92,7 @@ public class PermissionCache implements PermissionData {
 
     @Override
     public Map<String, Boolean> getImmutableBacking() {
-        return ImmutableMap.copyOf(permissions);
+        return permissions;
     }
 
     @Override
@@ -0,0 +1,213 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.caching;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSetMultimap;
+
+import me.lucko.luckperms.api.Contexts;
+import me.lucko.luckperms.api.Node;
+import me.lucko.luckperms.api.context.ImmutableContextSet;
+import me.lucko.luckperms.common.core.model.User;
+import me.lucko.luckperms.common.utils.ExtractedContexts;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shares the data resolved for users who hold identical nodes.
+ *
+ * <p>The permissions and meta resolved for a user only depend on their own nodes, the groups they inherit from and
+ * the contexts of the lookup. Most users hold nothing more than a group node or two, so rather than resolving the
+ * same data for each of them, it is resolved once per distinct set of nodes and shared.</p>
+ *
+ * <p>The nodes resolved through inheritance don't depend on the include global flags of the lookup, so they are
+ * resolved once and shared between the profiles which only differ by those flags.</p>
+ *
+ * <p>Profiles are keyed by the current inheritance version, which is incremented whenever a group changes. A user
+ * who gains a node of their own is simply keyed to a different profile the next time their data is refreshed.</p>
+ */
+public class ProfileCache {
+
+    /**
+     * Incremented each time the inherited data of any user may have changed
+     */
+    private final AtomicInteger inheritanceVersion = new AtomicInteger(0);
+
+    /**
+     * The hash of each node map in use. The maps are immutable, and replaced whenever a holder's nodes change, so
+     * each instance only needs to be hashed once.
+     */
+    private final LoadingCache<ImmutableSetMultimap<ImmutableContextSet, Node>, Integer> nodeHashes = Caffeine.newBuilder()
+            .weakKeys()
+            .build(ImmutableSetMultimap::hashCode);
+
+    private final LoadingCache<ProfileKey, Resolution> resolutions = Caffeine.newBuilder()
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .build(key -> new Resolution());
+
+    private final LoadingCache<ProfileKey, Profile> profiles = Caffeine.newBuilder()
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .build(key -> new Profile(resolutions.get(key.toInheritanceKey())));
+
+    /**
+     * Gets the profile shared by all users with the same nodes as the given user, in the given contexts
+     *
+     * @param user the user
+     * @param contexts the contexts of the lookup
+     * @return the shared profile
+     */
+    public Profile getProfile(User user, Contexts contexts) {
+        // read the version first, so data resolved concurrently with an invalidation is never stored under the new version
+        int version = inheritanceVersion.get();
+
+        ImmutableSetMultimap<ImmutableContextSet, Node> nodes = user.getNodes();
+        ImmutableSetMultimap<ImmutableContextSet, Node> transientNodes = user.getTransientNodes();
+        int nodesHash = 31 * nodeHashes.get(nodes) + nodeHashes.get(transientNodes);
+
+        return profiles.get(new ProfileKey(nodes, transientNodes, nodesHash, UserCache.getResolutionKey(contexts), version));
+    }
+
+    /**
+     * Invalidates all profiles. Called when one of the groups users may inherit from changes.
+     */
+    public void invalidate() {
+        inheritanceVersion.incrementAndGet();
+        profiles.invalidateAll();
+        resolutions.invalidateAll();
+    }
+
+    private static final class ProfileKey {
+        private final ImmutableSetMultimap<ImmutableContextSet, Node> nodes;
+        private final ImmutableSetMultimap<ImmutableContextSet, Node> transientNodes;
+        private final int nodesHash;
+        private final Contexts contexts;
+        private final int version;
+
+        // precalculated, so the node maps are only compared in full when the hashes match
+        private final int hashCode;
+
+        private ProfileKey(ImmutableSetMultimap<ImmutableContextSet, Node> nodes, ImmutableSetMultimap<ImmutableContextSet, Node> transientNodes, int nodesHash, Contexts contexts, int version) {
+            this.nodes = nodes;
+            this.transientNodes = transientNodes;
+            this.nodesHash = nodesHash;
+            this.contexts = contexts;
+            this.version = version;
+            this.hashCode = 31 * (31 * nodesHash + contexts.hashCode()) + version;
+        }
+
+        private ProfileKey toInheritanceKey() {
+            return new ProfileKey(nodes, transientNodes, nodesHash, UserCache.getInheritanceKey(contexts), version);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if (!(o instanceof ProfileKey)) return false;
+            final ProfileKey other = (ProfileKey) o;
+
+            return this.hashCode == other.hashCode &&
+                    this.version == other.version &&
+                    this.nodesHash == other.nodesHash &&
+                    this.contexts.equals(other.contexts) &&
+                    this.nodes.equals(other.nodes) &&
+                    this.transientNodes.equals(other.transientNodes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * The nodes resolved for a set of nodes, shared by the profiles which only differ by the include global flags.
+     */
+    private static final class Resolution {
+        private volatile List<? extends Node> nodes = null;
+
+        private List<? extends Node> getNodes(User user, Contexts contexts) {
+            List<? extends Node> nodes = this.nodes;
+            if (nodes == null) {
+                synchronized (this) {
+                    nodes = this.nodes;
+                    if (nodes == null) {
+                        nodes = ImmutableList.copyOf(user.resolveExportedNodes(ExtractedContexts.generate(UserCache.getInheritanceKey(contexts))));
+                        this.nodes = nodes;
+                    }
+                }
+            }
+            return nodes;
+        }
+    }
+
+    /**
+     * The data resolved for a set of nodes in a given set of contexts. Each part is resolved by the first user
+     * to request it.
+     */
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class Profile {
+        private final Resolution resolution;
+        private volatile Map<String, Boolean> permissions = null;
+        private volatile MetaCache meta = null;
+
+        public Map<String, Boolean> getPermissions(User user, Contexts contexts) {
+            Map<String, Boolean> permissions = this.permissions;
+            if (permissions == null) {
+                synchronized (this) {
+                    permissions = this.permissions;
+                    if (permissions == null) {
+                        permissions = user.exportNodes(resolution.getNodes(user, contexts), contexts, true);
+                        this.permissions = permissions;
+                    }
+                }
+            }
+            return permissions;
+        }
+
+        public MetaCache getMeta(User user, Contexts contexts) {
+            MetaCache meta = this.meta;
+            if (meta == null) {
+                synchronized (this) {
+                    meta = this.meta;
+                    if (meta == null) {
+                        meta = new MetaCache();
+                        meta.loadMeta(user.accumulateMeta(null, null, ExtractedContexts.generate(contexts)));
+                        this.meta = meta;
+                    }
+                }
+            }
+            return meta;
+        }
+    }
+}
@@ -29,25 +29,45 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 
 import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.CacheWriter;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import me.lucko.luckperms.api.Contexts;
 import me.lucko.luckperms.api.caching.MetaData;
 import me.lucko.luckperms.api.caching.PermissionData;
 import me.lucko.luckperms.api.caching.UserData;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.core.model.User;
-import me.lucko.luckperms.common.utils.ExtractedContexts;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Holds an easily accessible cache of a user's data in a number of contexts
  */
 @RequiredArgsConstructor
 public class UserCache implements UserData {
+    private static final long SLOW_PRE_CALCULATION_MILLIS = 1000L;
+
+    /**
+     * Calculates the distinct groups of a batch pre-calculation. Kept separate from the common pool, and limited in
+     * size, so logins can't starve other work.
+     */
+    private static final ExecutorService PRE_CALCULATION_EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("luckperms-pre-calculation-%d").build()
+    );
 
     /**
      * The user whom this data instance is representing
@@ -56,6 +76,20 @@ public class UserCache implements UserData {
 
     private final LoadingCache<Contexts, PermissionCache> permission = Caffeine.newBuilder()
             .expireAfterAccess(10, TimeUnit.MINUTES)
+            .writer(new CacheWriter<Contexts, PermissionCache>() {
+                @Override
+                public void write(Contexts contexts, PermissionCache data) {
+                    // do nothing
+                }
+
+                @Override
+                public void delete(Contexts contexts, PermissionCache data, RemovalCause cause) {
+                    // mark the instance as discarded, so anything holding a direct reference to it knows to re-request
+                    if (data != null) {
+                        data.discard();
+                    }
+                }
+            })
             .build(new CacheLoader<Contexts, PermissionCache>() {
                 @Override
                 public PermissionCache load(Contexts contexts) {
@@ -64,7 +98,7 @@ public class UserCache implements UserData {
 
                 @Override
                 public PermissionCache reload(Contexts contexts, PermissionCache oldData) {
-                    oldData.comparePermissions(user.exportNodes(ExtractedContexts.generate(contexts), true));
+                    oldData.comparePermissions(getProfile(contexts).getPermissions(user, contexts));
                     return oldData;
                 }
             });
@@ -79,13 +113,14 @@ public class UserCache implements UserData {
 
                 @Override
                 public MetaCache reload(Contexts contexts, MetaCache oldData) {
-                    oldData.loadMeta(user.accumulateMeta(null, null, ExtractedContexts.generate(contexts)));
+                    // the instance is updated in place, so anything holding a reference to it sees the new data
+                    oldData.loadMeta(getProfile(contexts).getMeta(user, contexts));
                     return oldData;
                 }
             });
 
     @Override
-    public PermissionData getPermissionData(@NonNull Contexts contexts) {
+    public PermissionCache getPermissionData(@NonNull Contexts contexts) {
         return permission.get(contexts);
     }
 
@@ -97,17 +132,22 @@ public class UserCache implements UserData {
     @Override
     public PermissionCache calculatePermissions(@NonNull Contexts contexts) {
         PermissionCache data = new PermissionCache(contexts, user, user.getPlugin().getCalculatorFactory());
-        data.setPermissions(user.exportNodes(ExtractedContexts.generate(contexts), true));
+        data.setPermissions(getProfile(contexts).getPermissions(user, contexts));
         return data;
     }
 
     @Override
     public MetaCache calculateMeta(@NonNull Contexts contexts) {
+        // the resolved state is shared with other users, but each user has their own instance
         MetaCache data = new MetaCache();
-        data.loadMeta(user.accumulateMeta(null, null, ExtractedContexts.generate(contexts)));
+        data.loadMeta(getProfile(contexts).getMeta(user, contexts));
         return data;
     }
 
+    private ProfileCache.Profile getProfile(Contexts contexts) {
+        return user.getPlugin().getProfileCache().getProfile(user, contexts);
+    }
+
     @Override
     public void recalculatePermissions(@NonNull Contexts contexts) {
         permission.refresh(contexts);
@@ -130,9 +170,66 @@ public class UserCache implements UserData {
         keys.forEach(meta::refresh);
     }
 
+    /**
+     * Calculates data for the given contexts in a single batch.
+     *
+     * <p>The nodes a user inherits only depend on the context set and the apply groups flags, so contexts are
+     * grouped by those, and each group resolves its nodes once. The include global variants within a group only
+     * filter the shared nodes, and the op flag doesn't affect the resolved data at all. Distinct groups are
+     * calculated in parallel.</p>
+     *
+     * @param contexts the contexts to calculate data in
+     */
     @Override
     public void preCalculate(@NonNull Set<Contexts> contexts) {
-        contexts.forEach(this::preCalculate);
+        long start = System.currentTimeMillis();
+
+        List<List<Contexts>> groups = new ArrayList<>(contexts.stream().collect(Collectors.groupingBy(UserCache::getInheritanceKey)).values());
+
+        // the first group is calculated by the calling thread, which would otherwise just be waiting
+        List<Future<?>> futures = new ArrayList<>();
+        for (List<Contexts> group : groups.subList(Math.min(1, groups.size()), groups.size())) {
+            futures.add(PRE_CALCULATION_EXECUTOR.submit(() -> group.forEach(this::preCalculate)));
+        }
+        if (!groups.isEmpty()) {
+            groups.get(0).forEach(this::preCalculate);
+        }
+        futures.forEach(Futures::getUnchecked);
+
+        long duration = System.currentTimeMillis() - start;
+        String message = "Pre-calculating data for " + user.getFriendlyName() + " in " + contexts.size() +
+                " contexts (" + groups.size() + " distinct) took " + duration + "ms";
+        if (duration >= SLOW_PRE_CALCULATION_MILLIS) {
+            user.getPlugin().getLog().warn(message);
+        } else if (user.getPlugin().getConfiguration().get(ConfigKeys.DEBUG_PRE_CALCULATION)) {
+            user.getPlugin().getLog().info(message);
+        }
+    }
+
+    // the key of the data shared by a profile, everything but the op flag
+    static Contexts getResolutionKey(Contexts contexts) {
+        return Contexts.of(
+                contexts.getContexts(),
+                contexts.isIncludeGlobal(),
+                contexts.isIncludeGlobalWorld(),
+                contexts.isApplyGroups(),
+                contexts.isApplyGlobalGroups(),
+                contexts.isApplyGlobalWorldGroups(),
+                false
+        );
+    }
+
+    // the key of the nodes resolved through inheritance, shared between the include global variants
+    static Contexts getInheritanceKey(Contexts contexts) {
+        return Contexts.of(
+                contexts.getContexts(),
+                true,
+                true,
+                contexts.isApplyGroups(),
+                contexts.isApplyGlobalGroups(),
+                contexts.isApplyGlobalWorldGroups(),
+                false
+        );
     }
 
     @Override
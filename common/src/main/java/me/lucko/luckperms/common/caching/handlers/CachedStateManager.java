@@ -30,23 +30,28 @@ import lombok.RequiredArgsConstructor;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 
+import me.lucko.luckperms.common.core.model.PermissionHolder;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 /**
  * Manages the cached state of all permission holders
  */
 @RequiredArgsConstructor
 public class CachedStateManager {
-    // private static final Consumer<PermissionHolder> INVALIDATE_CONSUMER = PermissionHolder::invalidateInheritanceCaches;
+    private static final Consumer<PermissionHolder> INVALIDATE_CONSUMER = PermissionHolder::invalidateInheritanceCaches;
 
     private final LuckPermsPlugin plugin;
 
     // Group --> Groups/Users that inherit from that group. (reverse relationship)
-    private final Multimap<HolderReference, HolderReference> map = HashMultimap.create();
+    private final Multimap<HolderReference<?>, HolderReference<?>> map = HashMultimap.create();
+
+    // Group/User --> Groups that holder inherits from. (the forward relationship, so entries can be removed quickly)
+    private final Multimap<HolderReference<?>, HolderReference<?>> parents = HashMultimap.create();
     private final ReentrantLock lock = new ReentrantLock();
 
     /**
@@ -56,18 +61,18 @@ public class CachedStateManager {
      * @param holder the holder name to query for
      * @return a set of inherited groups
      */
-    public Set<HolderReference> getInheritances(HolderReference holder) {
-        Set<HolderReference> set = new HashSet<>();
+    public Set<HolderReference<?>> getInheritances(HolderReference<?> holder) {
+        Set<HolderReference<?>> set = new HashSet<>();
         set.add(holder);
 
         lock.lock();
         try {
             while (true) {
-                Set<HolderReference> clone = new HashSet<>(set);
+                Set<HolderReference<?>> clone = new HashSet<>(set);
 
                 boolean work = false;
 
-                for (HolderReference s : clone) {
+                for (HolderReference<?> s : clone) {
                     if (set.addAll(map.get(s))) {
                         work = true;
                     }
@@ -91,13 +96,16 @@ public class CachedStateManager {
      * @param holder the holder to add
      * @param inheritedGroups a list of groups the holder inherits from
      */
-    public void putAll(HolderReference holder, Set<HolderReference> inheritedGroups) {
+    public void putAll(HolderReference<?> holder, Set<HolderReference<?>> inheritedGroups) {
         lock.lock();
         try {
-            map.entries().removeIf(entry -> entry.getValue().equals(holder));
+            for (HolderReference<?> parent : parents.removeAll(holder)) {
+                map.remove(parent, holder);
+            }
 
-            for (HolderReference child : inheritedGroups) {
+            for (HolderReference<?> child : inheritedGroups) {
                 map.put(child, holder);
+                parents.put(holder, child);
             }
         } finally {
             lock.unlock();
@@ -109,24 +117,37 @@ public class CachedStateManager {
      *
      * @param holder the holder name to clear
      */
-    public void clear(HolderReference holder) {
+    public void clear(HolderReference<?> holder) {
         lock.lock();
         try {
-            map.entries().removeIf(entry -> entry.getValue().equals(holder));
+            for (HolderReference<?> parent : parents.removeAll(holder)) {
+                map.remove(parent, holder);
+            }
         } finally {
             lock.unlock();
         }
     }
 
-    /*
-    public void invalidateInheritances(HolderReference holder) {
-        Set<HolderReference> toInvalidate = getInheritances(holder);
+    /**
+     * Invalidates the inheritance caches of all holders which inherit from the given holder.
+     *
+     * <p>Only loaded holders are affected. Nothing is reloaded from storage.</p>
+     *
+     * @param holder the holder which has changed
+     */
+    public void invalidateInheritances(HolderReference<?> holder) {
+        // data shared between users may have been resolved from the holder
+        plugin.getProfileCache().invalidate();
+
+        Set<HolderReference<?>> toInvalidate = getInheritances(holder);
         invalidateInheritances(plugin, toInvalidate);
+
+        // let the platform clear any caches it keeps outside of the holders
+        plugin.onInheritancesInvalidated();
     }
 
-    public static void invalidateInheritances(LuckPermsPlugin plugin, Set<HolderReference> references) {
+    public static void invalidateInheritances(LuckPermsPlugin plugin, Set<HolderReference<?>> references) {
         references.forEach(hr -> hr.apply(plugin, INVALIDATE_CONSUMER));
     }
-    */
 
 }
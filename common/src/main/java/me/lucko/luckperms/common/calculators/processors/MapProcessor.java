@@ -31,7 +31,7 @@ import me.lucko.luckperms.common.calculators.PermissionProcessor;
 import java.util.Map;
 
 public class MapProcessor implements PermissionProcessor {
-    private Map<String, Boolean> map = null;
+    private volatile Map<String, Boolean> map = null;
 
     @Override
     public Tristate hasPermission(String permission) {
@@ -41,8 +41,6 @@ public class MapProcessor implements PermissionProcessor {
 
     @Override
     public void updateBacking(Map<String, Boolean> map) {
-        if (this.map == null) {
-            this.map = map;
-        }
+        this.map = map;
     }
 }
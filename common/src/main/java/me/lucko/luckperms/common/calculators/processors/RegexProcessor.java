@@ -25,31 +25,43 @@
 
 package me.lucko.luckperms.common.calculators.processors;
 
+import lombok.AllArgsConstructor;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
 import me.lucko.luckperms.api.Tristate;
 import me.lucko.luckperms.common.calculators.PermissionProcessor;
 import me.lucko.luckperms.common.utils.PatternCache;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
+/**
+ * Resolves "r=" regex permissions.
+ *
+ * <p>Patterns are compiled into a {@link RegexSet} whenever the backing map is updated. Patterns which begin with
+ * a literal prefix are indexed by the first character of that prefix, so a check only evaluates the patterns which
+ * could possibly match the permission.</p>
+ */
 public class RegexProcessor implements PermissionProcessor {
-    private Map<Pattern, Boolean> regexPermissions = new ConcurrentHashMap<>();
+    private static final String META_CHARACTERS = "\\^$.|?*+()[]{}";
+    private static final String QUANTIFIERS = "?*+{";
+
+    private volatile RegexSet regexSet = RegexSet.EMPTY;
 
     @Override
     public Tristate hasPermission(String permission) {
-        for (Map.Entry<Pattern, Boolean> e : regexPermissions.entrySet()) {
-            if (e.getKey().matcher(permission).matches()) {
-                return Tristate.fromBoolean(e.getValue());
-            }
-        }
-
-        return Tristate.UNDEFINED;
+        return regexSet.match(permission);
     }
 
     @Override
     public void updateBacking(Map<String, Boolean> map) {
-        regexPermissions.clear();
+        List<CompiledPattern> patterns = new ArrayList<>();
         for (Map.Entry<String, Boolean> e : map.entrySet()) {
             if (!e.getKey().startsWith("r=") && !e.getKey().startsWith("R=")) {
                 continue;
@@ -62,7 +74,119 @@ public class RegexProcessor implements PermissionProcessor {
                 continue;
             }
 
-            regexPermissions.put(p, e.getValue());
+            patterns.add(new CompiledPattern(p, extractLiteralPrefix(pattern), e.getValue()));
+        }
+
+        regexSet = patterns.isEmpty() ? RegexSet.EMPTY : new RegexSet(patterns);
+    }
+
+    /**
+     * Extracts the literal string which all matches of the given pattern must start with.
+     *
+     * @param pattern the pattern
+     * @return the literal prefix, or an empty string if the pattern has no (detectable) literal prefix
+     */
+    private static String extractLiteralPrefix(String pattern) {
+        // alternations can make any part of the pattern optional
+        if (pattern.indexOf('|') != -1) {
+            return "";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        int len = pattern.length();
+        int i = pattern.startsWith("^") ? 1 : 0;
+
+        while (i < len) {
+            char c = pattern.charAt(i);
+            char literal;
+
+            if (c == '\\') {
+                // a backslash followed by a non alphanumeric character is always a literal
+                if (i + 1 >= len || Character.isLetterOrDigit(pattern.charAt(i + 1))) {
+                    break;
+                }
+                literal = pattern.charAt(i + 1);
+                i += 2;
+            } else if (META_CHARACTERS.indexOf(c) != -1) {
+                break;
+            } else {
+                literal = c;
+                i++;
+            }
+
+            // the literal is optional or repeated if it's followed by a quantifier
+            if (i < len && QUANTIFIERS.indexOf(pattern.charAt(i)) != -1) {
+                break;
+            }
+
+            sb.append(literal);
         }
+
+        return sb.toString();
+    }
+
+    /**
+     * An immutable, ordered set of patterns.
+     *
+     * <p>Patterns with longer literal prefixes take priority, followed by the patterns without a literal prefix.
+     * Ties are broken using the natural ordering of the pattern strings.</p>
+     */
+    private static final class RegexSet {
+        private static final Comparator<CompiledPattern> PRIORITY = Comparator.<CompiledPattern>comparingInt(p -> p.prefix.length()).reversed()
+                .thenComparing(p -> p.pattern.pattern());
+
+        private static final RegexSet EMPTY = new RegexSet(ImmutableList.of());
+
+        private final Map<Character, CompiledPattern[]> prefixed;
+        private final CompiledPattern[] unprefixed;
+
+        private RegexSet(List<CompiledPattern> patterns) {
+            Map<Character, List<CompiledPattern>> prefixed = new HashMap<>();
+            List<CompiledPattern> unprefixed = new ArrayList<>();
+
+            for (CompiledPattern p : patterns) {
+                if (p.prefix.isEmpty()) {
+                    unprefixed.add(p);
+                } else {
+                    prefixed.computeIfAbsent(p.prefix.charAt(0), c -> new ArrayList<>()).add(p);
+                }
+            }
+
+            ImmutableMap.Builder<Character, CompiledPattern[]> builder = ImmutableMap.builder();
+            for (Map.Entry<Character, List<CompiledPattern>> e : prefixed.entrySet()) {
+                builder.put(e.getKey(), e.getValue().stream().sorted(PRIORITY).toArray(CompiledPattern[]::new));
+            }
+
+            this.prefixed = builder.build();
+            this.unprefixed = unprefixed.stream().sorted(PRIORITY).toArray(CompiledPattern[]::new);
+        }
+
+        private Tristate match(String permission) {
+            if (!permission.isEmpty() && !prefixed.isEmpty()) {
+                CompiledPattern[] candidates = prefixed.get(permission.charAt(0));
+                if (candidates != null) {
+                    for (CompiledPattern p : candidates) {
+                        if (permission.startsWith(p.prefix) && p.pattern.matcher(permission).matches()) {
+                            return Tristate.fromBoolean(p.value);
+                        }
+                    }
+                }
+            }
+
+            for (CompiledPattern p : unprefixed) {
+                if (p.pattern.matcher(permission).matches()) {
+                    return Tristate.fromBoolean(p.value);
+                }
+            }
+
+            return Tristate.UNDEFINED;
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class CompiledPattern {
+        private final Pattern pattern;
+        private final String prefix;
+        private final boolean value;
     }
 }
@@ -0,0 +1,198 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+
+package me.lucko.luckperms.common.calculators.processors;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable trie of permission prefixes, keyed by dot separated segments.
+ *
+ * <p>Lookups walk the segments of a permission string in place, without creating any substrings, and return
+ * the value of the deepest entry which is a proper prefix of the permission.</p>
+ */
+public final class SegmentTrie {
+    private static final SegmentTrie EMPTY = new SegmentTrie(new Node(null, null, null));
+
+    public static SegmentTrie empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Compiles a new trie from the given prefix to value mappings.
+     *
+     * <p>Empty prefixes are ignored, as they can never be matched.</p>
+     *
+     * @param prefixes the prefixes to store in the trie
+     * @return a new trie
+     */
+    public static SegmentTrie compile(Map<String, Boolean> prefixes) {
+        if (prefixes.isEmpty()) {
+            return EMPTY;
+        }
+
+        NodeBuilder root = new NodeBuilder();
+        for (Map.Entry<String, Boolean> e : prefixes.entrySet()) {
+            String prefix = e.getKey();
+            if (prefix.isEmpty()) {
+                continue;
+            }
+
+            NodeBuilder node = root;
+            int start = 0;
+            while (true) {
+                int end = prefix.indexOf('.', start);
+                if (end == -1) {
+                    end = prefix.length();
+                }
+
+                node = node.children.computeIfAbsent(prefix.substring(start, end), s -> new NodeBuilder());
+
+                if (end == prefix.length()) {
+                    break;
+                }
+                start = end + 1;
+            }
+
+            node.value = e.getValue();
+        }
+
+        return new SegmentTrie(root.build());
+    }
+
+    private final Node root;
+
+    private SegmentTrie(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Gets the value of the deepest entry in the trie which is a proper prefix of the given permission.
+     *
+     * <p>For example, a lookup for "a.b.c" will consider the entries for "a.b" and "a", in that order.</p>
+     *
+     * @param permission the permission to lookup
+     * @return the value, or null if no prefix of the permission is present in the trie
+     */
+    public Boolean getDeepestPrefix(String permission) {
+        Node node = root;
+        Boolean result = null;
+
+        int start = 0;
+        while (true) {
+            int end = permission.indexOf('.', start);
+            if (end == -1) {
+                break;
+            }
+
+            node = node.getChild(permission, start, end);
+            if (node == null) {
+                break;
+            }
+
+            if (node.value != null) {
+                result = node.value;
+            }
+            start = end + 1;
+        }
+
+        return result;
+    }
+
+    private static int hash(String s, int start, int end) {
+        // equivalent to String#hashCode for the given region
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + s.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Node {
+        private final Boolean value;
+
+        // open addressed hash table of child segments
+        private final String[] keys;
+        private final Node[] children;
+
+        private Node(Boolean value, String[] keys, Node[] children) {
+            this.value = value;
+            this.keys = keys;
+            this.children = children;
+        }
+
+        private Node getChild(String s, int start, int end) {
+            if (keys == null) {
+                return null;
+            }
+
+            int len = end - start;
+            int mask = keys.length - 1;
+            int i = hash(s, start, end) & mask;
+
+            String key;
+            while ((key = keys[i]) != null) {
+                if (key.length() == len && key.regionMatches(0, s, start, len)) {
+                    return children[i];
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+    }
+
+    private static final class NodeBuilder {
+        private final Map<String, NodeBuilder> children = new HashMap<>();
+        private Boolean value = null;
+
+        private Node build() {
+            if (children.isEmpty()) {
+                return new Node(value, null, null);
+            }
+
+            // keep the load factor at or below 0.5
+            int size = Integer.highestOneBit(children.size()) << 2;
+            int mask = size - 1;
+
+            String[] keys = new String[size];
+            Node[] nodes = new Node[size];
+
+            for (Map.Entry<String, NodeBuilder> e : children.entrySet()) {
+                String key = e.getKey();
+                int i = hash(key, 0, key.length()) & mask;
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+                nodes[i] = e.getValue().build();
+            }
+
+            return new Node(value, keys, nodes);
+        }
+    }
+
+}
@@ -25,50 +25,57 @@
 
 package me.lucko.luckperms.common.calculators.processors;
 
+import com.google.common.collect.ImmutableMap;
+
 import me.lucko.luckperms.api.Tristate;
 import me.lucko.luckperms.common.calculators.PermissionProcessor;
 
 import java.util.Map;
 
 public class WildcardProcessor implements PermissionProcessor {
-    private Map<String, Boolean> map = null;
+    private static final String WILDCARD_SUFFIX = ".*";
+    private static final String ROOT_WILDCARD = "*";
+    private static final String ROOT_WILDCARD_WITH_QUOTES = "'*'";
+
+    // the prefixes of all "x.y.*" style nodes in the backing map
+    private volatile SegmentTrie wildcards = SegmentTrie.empty();
+    private volatile Tristate rootWildcard = Tristate.UNDEFINED;
 
     @Override
     public Tristate hasPermission(String permission) {
-        String node = permission;
-
-        while (true) {
-            int endIndex = node.lastIndexOf('.');
-            if (endIndex == -1) {
-                break;
-            }
-
-            node = node.substring(0, endIndex);
-            if (!node.isEmpty()) {
-                Boolean b = map.get(node + ".*");
-                if (b != null) {
-                    return Tristate.fromBoolean(b);
-                }
-            }
-        }
-
-        Boolean b = map.get("'*'");
+        Boolean b = wildcards.getDeepestPrefix(permission);
         if (b != null) {
             return Tristate.fromBoolean(b);
         }
 
-        b = map.get("*");
-        if (b != null) {
-            return Tristate.fromBoolean(b);
-        }
-
-        return Tristate.UNDEFINED;
+        return rootWildcard;
     }
 
     @Override
     public void updateBacking(Map<String, Boolean> map) {
-        if (this.map == null) {
-            this.map = map;
+        ImmutableMap.Builder<String, Boolean> prefixes = ImmutableMap.builder();
+        Boolean root = null;
+        Boolean rootWithQuotes = null;
+
+        for (Map.Entry<String, Boolean> e : map.entrySet()) {
+            String node = e.getKey();
+            if (node.equals(ROOT_WILDCARD)) {
+                root = e.getValue();
+            } else if (node.equals(ROOT_WILDCARD_WITH_QUOTES)) {
+                rootWithQuotes = e.getValue();
+            } else if (node.endsWith(WILDCARD_SUFFIX)) {
+                prefixes.put(node.substring(0, node.length() - WILDCARD_SUFFIX.length()), e.getValue());
+            }
+        }
+
+        this.wildcards = SegmentTrie.compile(prefixes.build());
+
+        if (rootWithQuotes != null) {
+            this.rootWildcard = Tristate.fromBoolean(rootWithQuotes);
+        } else if (root != null) {
+            this.rootWildcard = Tristate.fromBoolean(root);
+        } else {
+            this.rootWildcard = Tristate.UNDEFINED;
         }
     }
 }
@@ -40,6 +40,7 @@ import me.lucko.luckperms.common.core.model.Track;
 import me.lucko.luckperms.common.core.model.User;
 import me.lucko.luckperms.common.messaging.InternalMessagingService;
 import me.lucko.luckperms.common.messaging.NoopMessagingService;
+import me.lucko.luckperms.common.messaging.UpdateTarget;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.treeview.PermissionVault;
 import me.lucko.luckperms.common.treeview.TreeNode;
@@ -182,7 +183,7 @@ public abstract class SubCommand<T> extends Command<T, Void> {
 
         InternalMessagingService messagingService = plugin.getMessagingService();
         if (!sender.isImport() && !(messagingService instanceof NoopMessagingService) && plugin.getConfiguration().get(ConfigKeys.AUTO_PUSH_UPDATES)) {
-            messagingService.getUpdateBuffer().request();
+            messagingService.requestUpdate(UpdateTarget.user(user.getUuid()));
         }
 
         if (success) {
@@ -195,15 +196,12 @@ public abstract class SubCommand<T> extends Command<T, Void> {
     public static void save(Group group, Sender sender, LuckPermsPlugin plugin) {
         boolean success = plugin.getStorage().force().saveGroup(group).join();
 
-        if (sender.isImport()) {
-            plugin.getUpdateTaskBuffer().request();
-        } else {
-            plugin.getUpdateTaskBuffer().requestDirectly();
-        }
+        // holders inheriting from the group have already been invalidated by the group itself, so there's no need
+        // to run an update task here.
 
         InternalMessagingService messagingService = plugin.getMessagingService();
         if (!sender.isImport() && !(messagingService instanceof NoopMessagingService) && plugin.getConfiguration().get(ConfigKeys.AUTO_PUSH_UPDATES)) {
-            messagingService.getUpdateBuffer().request();
+            messagingService.requestUpdate(UpdateTarget.group(group.getName()));
         }
 
         if (success) {
@@ -224,7 +222,7 @@ public abstract class SubCommand<T> extends Command<T, Void> {
 
         InternalMessagingService messagingService = plugin.getMessagingService();
         if (!sender.isImport() && !(messagingService instanceof NoopMessagingService) && plugin.getConfiguration().get(ConfigKeys.AUTO_PUSH_UPDATES)) {
-            messagingService.getUpdateBuffer().request();
+            messagingService.requestUpdate(UpdateTarget.track(track.getName()));
         }
 
         if (success) {
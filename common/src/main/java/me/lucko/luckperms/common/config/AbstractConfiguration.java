@@ -32,6 +32,8 @@ import com.github.benmanes.caffeine.cache.LoadingCache;
 
 import me.lucko.luckperms.common.api.delegates.LPConfigurationDelegate;
 import me.lucko.luckperms.common.config.keys.EnduringKey;
+import me.lucko.luckperms.common.core.model.Group;
+import me.lucko.luckperms.common.core.model.PermissionHolder;
 
 import java.util.Optional;
 import java.util.Set;
@@ -68,6 +70,18 @@ public abstract class AbstractConfiguration implements LuckPermsConfiguration {
 
         loadAll();
         contextsFile.load();
+
+        // contexts may depend on the values in the config
+        getPlugin().getContextManager().invalidateAll();
+
+        // as may group weights, which affect the order groups are resolved in
+        for (Group group : getPlugin().getGroupManager().getAll().values()) {
+            group.invalidateWeight();
+            group.invalidateInheritanceCaches();
+        }
+        getPlugin().getProfileCache().invalidate();
+        getPlugin().getUserManager().getAll().values().forEach(PermissionHolder::invalidateInheritanceCaches);
+
         getPlugin().getApiProvider().getEventFactory().handleConfigReload();
     }
 }
@@ -99,6 +99,8 @@ public class ConfigKeys {
                 return (Function<User, PrimaryGroupHolder>) AllParentsByWeightHolder::new;
         }
     }));
+    public static final ConfigKey<Integer> POLLED_CONTEXT_CACHE_MILLIS = IntegerKey.of("polled-context-cache-millis", 50);
+    public static final ConfigKey<Boolean> DEBUG_PRE_CALCULATION = BooleanKey.of("debug-pre-calculation", false);
     public static final ConfigKey<Boolean> APPLYING_WILDCARDS = EnduringKey.wrap(BooleanKey.of("apply-wildcards", true));
     public static final ConfigKey<Boolean> APPLYING_REGEX = EnduringKey.wrap(BooleanKey.of("apply-regex", true));
     public static final ConfigKey<Boolean> APPLYING_SHORTHAND = EnduringKey.wrap(BooleanKey.of("apply-shorthand", true));
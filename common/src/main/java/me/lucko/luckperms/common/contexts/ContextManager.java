@@ -25,41 +25,163 @@
 
 package me.lucko.luckperms.common.contexts;
 
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 
+import me.lucko.luckperms.api.Contexts;
 import me.lucko.luckperms.api.context.ContextCalculator;
 import me.lucko.luckperms.api.context.ImmutableContextSet;
 import me.lucko.luckperms.api.context.MutableContextSet;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.core.model.User;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.TimeUnit;
 
-public class ContextManager<T> {
+/**
+ * Calculates and caches the contexts applicable to the players on a platform.
+ *
+ * <p>If all of the registered calculators are signal driven, calculated contexts are cached until they are
+ * invalidated. Otherwise, they are recalculated once the configured polling interval has passed.</p>
+ *
+ * @param <T> the player type of the platform
+ */
+public abstract class ContextManager<T> {
+    private final LuckPermsPlugin plugin;
+
+    /**
+     * The player class of the platform
+     */
+    @Getter
+    private final Class<T> subjectClass;
 
     private final List<ContextCalculator<T>> calculators = new CopyOnWriteArrayList<>();
     private final List<ContextCalculator<?>> staticCalculators = new CopyOnWriteArrayList<>();
 
-    private final LoadingCache<T, ImmutableContextSet> cache = Caffeine.newBuilder()
+    // if any of the registered calculators need to be polled for changes
+    private volatile boolean polling = false;
+
+    private final LoadingCache<T, CachedContexts> cache = Caffeine.newBuilder()
+            .weakKeys()
+            .build(this::calculate);
+
+    private final LoadingCache<T, ContextSnapshotHolder<T>> snapshotHolders = Caffeine.newBuilder()
             .weakKeys()
-            .expireAfterWrite(50L, TimeUnit.MILLISECONDS)
-            .build(t -> calculateApplicableContext(t, MutableContextSet.create()).makeImmutable());
+            .build(t -> new ContextSnapshotHolder<>(this));
+
+    protected ContextManager(LuckPermsPlugin plugin, Class<T> subjectClass) {
+        this.plugin = plugin;
+        this.subjectClass = subjectClass;
+    }
 
-    private MutableContextSet calculateApplicableContext(T subject, MutableContextSet accumulator) {
+    private CachedContexts calculate(T subject) {
+        MutableContextSet accumulator = MutableContextSet.create();
         for (ContextCalculator<T> calculator : calculators) {
             calculator.giveApplicableContext(subject, accumulator);
         }
-        return accumulator;
+
+        long expiry = polling ? System.currentTimeMillis() + plugin.getConfiguration().get(ConfigKeys.POLLED_CONTEXT_CACHE_MILLIS) : Long.MAX_VALUE;
+        return new CachedContexts(accumulator.makeImmutable(), expiry);
+    }
+
+    CachedContexts getCachedContexts(T subject) {
+        CachedContexts contexts = cache.get(subject);
+        if (!contexts.isExpired()) {
+            return contexts;
+        }
+
+        // recalculate atomically, so we don't overwrite a concurrent invalidation with stale data
+        return cache.asMap().compute(subject, (s, existing) -> existing == null || existing.isExpired() ? calculate(s) : existing);
     }
 
+    /**
+     * Forms a {@link Contexts} instance for the subject from the given context set, using the rules of the platform.
+     *
+     * @param subject the subject
+     * @param contextSet the contexts applicable to the subject
+     * @return a contexts instance
+     */
+    protected abstract Contexts formContexts(T subject, ImmutableContextSet contextSet);
+
     public ImmutableContextSet getApplicableContext(T subject) {
-        return cache.get(subject);
+        return getCachedContexts(subject).getContextSet();
+    }
+
+    public Contexts getApplicableContexts(T subject) {
+        return formContexts(subject, getApplicableContext(subject));
+    }
+
+    /**
+     * Gets the holder of the subject's active context snapshot
+     *
+     * @param subject the subject
+     * @return the snapshot holder for the subject
+     */
+    public ContextSnapshotHolder<T> getSnapshotHolder(T subject) {
+        return snapshotHolders.get(subject);
+    }
+
+    /**
+     * Gets the active context snapshot for the subject
+     *
+     * @param subject the subject
+     * @param user the user linked to the subject
+     * @return the active snapshot
+     */
+    public ContextSnapshot getSnapshot(T subject, User user) {
+        return getSnapshotHolder(subject).getSnapshot(subject, user);
+    }
+
+    /**
+     * Gets the active context snapshot for the subject, without calculating one if it is missing or outdated
+     *
+     * @param subject the subject
+     * @param user the user linked to the subject
+     * @return the active snapshot, or null if there is no valid snapshot
+     */
+    public ContextSnapshot getExistingSnapshot(T subject, User user) {
+        ContextSnapshotHolder<T> holder = snapshotHolders.getIfPresent(subject);
+        return holder == null ? null : holder.getExistingSnapshot(user);
+    }
+
+    /**
+     * Invalidates the cached contexts for the subject, forcing them to be recalculated on the next lookup.
+     *
+     * <p>Signal driven calculators should call this method whenever the contexts they provide change.</p>
+     *
+     * @param subject the subject
+     */
+    public void invalidateCache(T subject) {
+        cache.invalidate(subject);
+
+        ContextSnapshotHolder<T> holder = snapshotHolders.getIfPresent(subject);
+        if (holder != null) {
+            holder.invalidate();
+        }
+    }
+
+    /**
+     * Invalidates the cached contexts for all subjects.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+        snapshotHolders.asMap().values().forEach(ContextSnapshotHolder::invalidate);
     }
 
     public void registerCalculator(ContextCalculator<T> calculator) {
         // calculators registered first should have priority (and be checked last.)
         calculators.add(0, calculator);
+
+        if (!calculator.isSignalDriven()) {
+            polling = true;
+        }
+
+        // existing entries may have been cached without an expiry
+        invalidateAll();
     }
 
     public void registerStaticCalculator(ContextCalculator<?> calculator) {
@@ -77,4 +199,17 @@ public class ContextManager<T> {
     public int getCalculatorsSize() {
         return calculators.size();
     }
+
+    @Getter
+    @AllArgsConstructor
+    static final class CachedContexts {
+        private final ImmutableContextSet contextSet;
+
+        // the time when the contexts should be recalculated, or Long.MAX_VALUE if they never expire
+        private final long expiry;
+
+        boolean isExpired() {
+            return expiry != Long.MAX_VALUE && System.currentTimeMillis() >= expiry;
+        }
+    }
 }
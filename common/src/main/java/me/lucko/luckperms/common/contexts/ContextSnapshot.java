@@ -0,0 +1,74 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+
+package me.lucko.luckperms.common.contexts;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import me.lucko.luckperms.api.Contexts;
+import me.lucko.luckperms.common.caching.PermissionCache;
+import me.lucko.luckperms.common.core.model.User;
+
+/**
+ * An immutable snapshot of a subject's active contexts, along with the permission data calculated for them.
+ */
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class ContextSnapshot {
+
+    /**
+     * The user the permission data belongs to
+     */
+    @Getter
+    private final User user;
+
+    /**
+     * The active contexts of the subject
+     */
+    @Getter
+    private final Contexts contexts;
+
+    /**
+     * The users permission data in the active contexts
+     */
+    @Getter
+    private final PermissionCache permissionData;
+
+    // the version of the holder this snapshot was created for
+    private final int version;
+
+    // the time when this snapshot should be recalculated, or Long.MAX_VALUE if it only expires when invalidated
+    private final long expiry;
+
+    boolean isValid(User user, int version) {
+        return this.user == user &&
+                this.version == version &&
+                !permissionData.isDiscarded() &&
+                (expiry == Long.MAX_VALUE || System.currentTimeMillis() < expiry);
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+
+package me.lucko.luckperms.common.contexts;
+
+import lombok.RequiredArgsConstructor;
+
+import me.lucko.luckperms.api.Contexts;
+import me.lucko.luckperms.common.caching.PermissionCache;
+import me.lucko.luckperms.common.core.model.User;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the active {@link ContextSnapshot} for a subject.
+ *
+ * <p>The snapshot is only replaced when it is invalidated, or once its contexts have expired. If the subjects
+ * contexts are unchanged when recalculated, the existing permission data is carried over to the new snapshot.</p>
+ *
+ * <p>Lookups served by the snapshot bypass the users cache, so the cache entry behind it is periodically
+ * touched to stop it from expiring whilst the snapshot is still in use.</p>
+ *
+ * @param <T> the subject type
+ */
+@RequiredArgsConstructor
+public class ContextSnapshotHolder<T> {
+    private static final long TOUCH_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final ContextManager<T> contextManager;
+
+    private final AtomicInteger version = new AtomicInteger(0);
+    private volatile ContextSnapshot snapshot = null;
+    private volatile long lastTouched = 0L;
+
+    /**
+     * Gets the active snapshot, recalculating it if necessary
+     *
+     * @param subject the subject
+     * @param user the user linked to the subject
+     * @return the active snapshot
+     */
+    public ContextSnapshot getSnapshot(T subject, User user) {
+        ContextSnapshot snapshot = this.snapshot;
+        int version = this.version.get();
+
+        if (snapshot != null && snapshot.isValid(user, version)) {
+            touch(snapshot);
+            return snapshot;
+        }
+
+        return recalculate(subject, user, snapshot, version);
+    }
+
+    /**
+     * Gets the active snapshot, without recalculating it
+     *
+     * @param user the user linked to the subject
+     * @return the active snapshot, or null if there is no valid snapshot
+     */
+    public ContextSnapshot getExistingSnapshot(User user) {
+        ContextSnapshot snapshot = this.snapshot;
+        if (snapshot == null || !snapshot.isValid(user, version.get())) {
+            return null;
+        }
+
+        touch(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Invalidates the active snapshot, forcing it to be recalculated on the next lookup.
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+        snapshot = null;
+    }
+
+    private ContextSnapshot recalculate(T subject, User user, ContextSnapshot previous, int version) {
+        ContextManager.CachedContexts cached = contextManager.getCachedContexts(subject);
+        Contexts contexts = contextManager.formContexts(subject, cached.getContextSet());
+        long expiry = cached.getExpiry();
+
+        if (previous != null && previous.getUser() == user && previous.getContexts().equals(contexts)) {
+            // nothing has changed, reuse the existing instance
+            contexts = previous.getContexts();
+        }
+
+        // if the existing data is still cached, this returns the same instance, and touches its entry
+        PermissionCache permissionData = user.getUserData().getPermissionData(contexts);
+        lastTouched = System.currentTimeMillis();
+
+        ContextSnapshot snapshot = new ContextSnapshot(user, contexts, permissionData, version, expiry);
+
+        // if the holder was invalidated in the meantime, the snapshot will have an outdated version,
+        // and will just be recalculated again on the next lookup.
+        this.snapshot = snapshot;
+        return snapshot;
+    }
+
+    private void touch(ContextSnapshot snapshot) {
+        long now = System.currentTimeMillis();
+        if (now - lastTouched < TOUCH_INTERVAL_MILLIS) {
+            return;
+        }
+
+        lastTouched = now;
+        snapshot.getUser().getUserData().getPermissionData(snapshot.getContexts());
+    }
+
+}
@@ -48,4 +48,10 @@ public class StaticCalculator<T> implements ContextCalculator<T> {
         return accumulator;
     }
 
+    @Override
+    public boolean isSignalDriven() {
+        // only changes when the config is reloaded
+        return true;
+    }
+
 }
@@ -170,6 +170,6 @@ class NodeBuilder implements Node.Builder {
 
     @Override
     public Node build() {
-        return new ImmutableNode(permission, value, override, expireAt, server, world, extraContexts);
+        return NodeFactory.intern(new ImmutableNode(permission, value, override, expireAt, server, world, extraContexts));
     }
 }
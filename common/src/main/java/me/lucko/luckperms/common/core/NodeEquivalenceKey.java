@@ -0,0 +1,157 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.core;
+
+import lombok.ToString;
+
+import me.lucko.luckperms.api.LocalizedNode;
+import me.lucko.luckperms.api.Node;
+import me.lucko.luckperms.api.context.ImmutableContextSet;
+import me.lucko.luckperms.common.core.model.ImmutableNode;
+
+import java.util.Objects;
+
+/**
+ * A key which represents the identity of a node under one of the weaker forms of node equality.
+ *
+ * <p>Two nodes which are equal using {@link Node#almostEquals(Node)}, {@link Node#equalsIgnoringValue(Node)} or
+ * {@link Node#equalsIgnoringValueOrTemp(Node)} will have equal keys of the respective type, allowing nodes to be
+ * deduplicated using a hash set instead of comparing every pair.</p>
+ */
+@ToString(exclude = "hashCode")
+public final class NodeEquivalenceKey {
+
+    // placed in the expiry field of keys which only care if the node is temporary
+    public static final long TEMPORARY = -1L;
+
+    /**
+     * Gets a key which is equal for nodes which are {@link Node#almostEquals(Node) almost equal}.
+     *
+     * @param node the node
+     * @return the key
+     */
+    public static NodeEquivalenceKey almostEquals(Node node) {
+        ImmutableNode immutableNode = unwrap(node);
+        if (immutableNode != null) {
+            return immutableNode.getAlmostEqualsKey();
+        }
+        return of(node, node.isTemporary() ? TEMPORARY : 0L);
+    }
+
+    /**
+     * Gets a key which is equal for nodes which are {@link Node#equalsIgnoringValue(Node) equal ignoring value}.
+     *
+     * @param node the node
+     * @return the key
+     */
+    public static NodeEquivalenceKey ignoringValue(Node node) {
+        ImmutableNode immutableNode = unwrap(node);
+        if (immutableNode != null) {
+            return immutableNode.getEqualsIgnoringValueKey();
+        }
+        return of(node, node.isTemporary() ? node.getExpiryUnixTime() : 0L);
+    }
+
+    /**
+     * Gets a key which is equal for nodes which are {@link Node#equalsIgnoringValueOrTemp(Node) equal ignoring value
+     * or temporary status}.
+     *
+     * @param node the node
+     * @return the key
+     */
+    public static NodeEquivalenceKey ignoringValueOrTemp(Node node) {
+        ImmutableNode immutableNode = unwrap(node);
+        if (immutableNode != null) {
+            return immutableNode.getEqualsIgnoringValueOrTempKey();
+        }
+        return of(node, 0L);
+    }
+
+    /**
+     * Creates a new key for the node. {@link ImmutableNode} caches the result of this method, and should be used
+     * where possible.
+     *
+     * @param node the node
+     * @param expiry the expiry component of the key
+     * @return a new key
+     */
+    public static NodeEquivalenceKey of(Node node, long expiry) {
+        return new NodeEquivalenceKey(
+                node.getPermission().toLowerCase(),
+                node.getServer().map(String::toLowerCase).orElse(null),
+                node.getWorld().map(String::toLowerCase).orElse(null),
+                expiry,
+                node.getContexts().makeImmutable()
+        );
+    }
+
+    private static ImmutableNode unwrap(Node node) {
+        if (node instanceof LocalizedNode) {
+            node = ((LocalizedNode) node).getNode();
+        }
+        return node instanceof ImmutableNode ? (ImmutableNode) node : null;
+    }
+
+    private final String permission;
+
+    // nullable
+    private final String server;
+    // nullable
+    private final String world;
+
+    private final long expiry;
+    private final ImmutableContextSet contexts;
+
+    private final int hashCode;
+
+    private NodeEquivalenceKey(String permission, String server, String world, long expiry, ImmutableContextSet contexts) {
+        this.permission = permission;
+        this.server = server;
+        this.world = world;
+        this.expiry = expiry;
+        this.contexts = contexts;
+        this.hashCode = Objects.hash(permission, server, world, expiry, contexts);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (!(o instanceof NodeEquivalenceKey)) return false;
+        final NodeEquivalenceKey other = (NodeEquivalenceKey) o;
+
+        return this.hashCode == other.hashCode &&
+                this.expiry == other.expiry &&
+                this.permission.equals(other.permission) &&
+                Objects.equals(this.server, other.server) &&
+                Objects.equals(this.world, other.world) &&
+                this.contexts.equals(other.contexts);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
@@ -30,6 +30,8 @@ import lombok.experimental.UtilityClass;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.google.common.base.Splitter;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 
 import me.lucko.luckperms.api.MetaUtils;
 import me.lucko.luckperms.api.Node;
@@ -45,6 +47,11 @@ import java.util.Map;
  */
 @UtilityClass
 public class NodeFactory {
+    // equal nodes and the strings they are made from are shared between holders, to avoid keeping thousands of
+    // copies of common nodes (like group.default) in memory. weak, so unused instances can still be collected.
+    private static final Interner<Node> NODE_INTERNER = Interners.newWeakInterner();
+    private static final Interner<String> STRING_INTERNER = Interners.newWeakInterner();
+
     private static final LoadingCache<String, Node> CACHE = Caffeine.newBuilder()
             .build(s -> builderFromSerializedNode(s, true).build());
 
@@ -59,6 +66,26 @@ public class NodeFactory {
         }
     }
 
+    /**
+     * Returns a canonical instance of the node, which is shared by all equal nodes
+     *
+     * @param node the node
+     * @return the canonical instance
+     */
+    public static Node intern(Node node) {
+        return NODE_INTERNER.intern(node);
+    }
+
+    /**
+     * Returns a canonical instance of the string, or null if the string is null
+     *
+     * @param s the string
+     * @return the canonical instance
+     */
+    public static String intern(String s) {
+        return s == null ? null : STRING_INTERNER.intern(s);
+    }
+
     public static Node.Builder newBuilder(String s) {
         return new NodeBuilder(s, false);
     }
@@ -30,6 +30,8 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.gson.Gson;
@@ -60,6 +62,12 @@ import java.util.Map;
 public final class NodeModel {
     private static final Gson GSON = new Gson();
 
+    // nodes are shared between every model which describes them, so loading many holders with the same data doesn't
+    // repeatedly parse and build the same nodes. weak values, so nodes which are no longer held are released.
+    private static final LoadingCache<NodeModel, Node> NODE_CACHE = Caffeine.newBuilder()
+            .weakValues()
+            .build(NodeModel::buildNode);
+
     public static NodeModel fromNode(Node node) {
         return NodeModel.of(
                 node.getPermission(),
@@ -92,6 +100,10 @@ public final class NodeModel {
     }
 
     public Node toNode() {
+        return NODE_CACHE.get(this);
+    }
+
+    private Node buildNode() {
         Node.Builder builder = NodeFactory.newBuilder(permission);
         builder.setValue(value);
         builder.setServer(server);
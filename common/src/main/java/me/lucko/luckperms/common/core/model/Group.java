@@ -25,17 +25,28 @@
 
 package me.lucko.luckperms.common.core.model;
 
+import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
 import me.lucko.luckperms.common.api.delegates.GroupDelegate;
 import me.lucko.luckperms.common.caching.handlers.GroupReference;
 import me.lucko.luckperms.common.caching.handlers.HolderReference;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.utils.ExtractedContexts;
 import me.lucko.luckperms.common.utils.Identifiable;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @ToString(of = {"name"})
 @EqualsAndHashCode(of = {"name"}, callSuper = false)
 public class Group extends PermissionHolder implements Identifiable<String> {
@@ -49,9 +60,29 @@ public class Group extends PermissionHolder implements Identifiable<String> {
     @Getter
     private final GroupDelegate delegate = new GroupDelegate(this);
 
+    /**
+     * Incremented each time the inheritance tree resolved from this group may have changed
+     */
+    private final AtomicInteger inheritanceVersion = new AtomicInteger(0);
+
+    /**
+     * The inheritance tree resolved from this group, cached for each set of contexts it's been resolved in.
+     *
+     * <p>Trees are keyed by the version they were resolved at, so one which was still being resolved when the cache
+     * was invalidated can never be returned afterwards.</p>
+     */
+    private final LoadingCache<InheritanceKey, List<InheritanceSegment>> inheritanceCache = Caffeine.newBuilder()
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .build(key -> resolveInheritanceSegments(new ArrayList<>(), new HashSet<>(), key.context, false));
+
     public Group(String name, LuckPermsPlugin plugin) {
         super(name, plugin);
         this.name = name;
+
+        getStateListeners().add(() -> {
+            invalidateInheritanceCaches();
+            getPlugin().getCachedStateManager().invalidateInheritances(toReference());
+        });
     }
 
     @Override
@@ -77,4 +108,29 @@ public class Group extends PermissionHolder implements Identifiable<String> {
     public HolderReference<String> toReference() {
         return GroupReference.of(getId());
     }
+
+    /**
+     * Gets the cached inheritance tree resolved from this group
+     *
+     * @param context the contexts of the lookup
+     * @return the segments of the tree, in the order they should be applied
+     */
+    List<InheritanceSegment> getCachedInheritance(ExtractedContexts context) {
+        // read the version first, so a tree resolved concurrently with an invalidation is never stored under the new version
+        return inheritanceCache.get(new InheritanceKey(context, inheritanceVersion.get()));
+    }
+
+    @Override
+    public void invalidateInheritanceCaches() {
+        super.invalidateInheritanceCaches();
+        inheritanceVersion.incrementAndGet();
+        inheritanceCache.invalidateAll();
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class InheritanceKey {
+        private final ExtractedContexts context;
+        private final int version;
+    }
 }
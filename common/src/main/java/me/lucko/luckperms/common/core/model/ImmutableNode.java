@@ -25,9 +25,7 @@
 
 package me.lucko.luckperms.common.core.model;
 
-import lombok.EqualsAndHashCode;
 import lombok.Getter;
-import lombok.ToString;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
@@ -40,6 +38,7 @@ import me.lucko.luckperms.api.Tristate;
 import me.lucko.luckperms.api.context.ContextSet;
 import me.lucko.luckperms.api.context.ImmutableContextSet;
 import me.lucko.luckperms.api.context.MutableContextSet;
+import me.lucko.luckperms.common.core.NodeEquivalenceKey;
 import me.lucko.luckperms.common.core.NodeFactory;
 import me.lucko.luckperms.common.utils.PatternCache;
 import me.lucko.luckperms.common.utils.ShorthandParser;
@@ -49,6 +48,7 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.regex.Pattern;
@@ -57,8 +57,6 @@ import java.util.stream.Collectors;
 /**
  * An immutable permission node
  */
-@ToString(of = {"permission", "value", "override", "server", "world", "expireAt", "contexts"})
-@EqualsAndHashCode(of = {"permission", "value", "override", "server", "world", "expireAt", "contexts"})
 public final class ImmutableNode implements Node {
 
     private static boolean shouldApply(String str, boolean applyRegex, String thisStr) {
@@ -134,14 +132,19 @@ public final class ImmutableNode implements Node {
         return s;
     }
 
+    // flags stored in the flags field
+    private static final int VALUE = 1;
+    private static final int OVERRIDE = 1 << 1;
+    private static final int GROUP = 1 << 2;
+    private static final int WILDCARD = 1 << 3;
+    private static final int META = 1 << 4;
+    private static final int PREFIX = 1 << 5;
+    private static final int SUFFIX = 1 << 6;
+
     @Getter
     private final String permission;
 
-    @Getter
-    private final Boolean value;
-
-    @Getter
-    private boolean override;
+    private final byte flags;
 
     // nullable
     private final String server;
@@ -154,33 +157,34 @@ public final class ImmutableNode implements Node {
     @Getter
     private final ImmutableContextSet contexts;
 
-    @Getter
-    private final ImmutableContextSet fullContexts;
+    private final int hashCode;
 
-    // Cached state
+    // Cached state. Everything below is derived from the fields above, and is calculated lazily, as most of it is
+    // never read for a typical node. These fields are only ever set to the same (equal) value, so races are benign.
 
     // these save on lots of instance creation when comparing nodes
-    private final Optional<String> optServer;
-    private final Optional<String> optWorld;
+    private Optional<String> optServer = null;
+    private Optional<String> optWorld = null;
 
-    private final boolean isGroup;
-    private String groupName;
+    private ImmutableContextSet fullContexts = null;
 
-    private final boolean isWildcard;
-    private final int wildcardLevel;
+    private String groupName = null;
 
-    private final boolean isMeta;
-    private Map.Entry<String, String> meta;
+    // -1 until calculated
+    private int wildcardLevel = -1;
 
-    private final boolean isPrefix;
-    private Map.Entry<Integer, String> prefix;
+    private Map.Entry<String, String> meta = null;
+    private Map.Entry<Integer, String> prefix = null;
+    private Map.Entry<Integer, String> suffix = null;
 
-    private final boolean isSuffix;
-    private Map.Entry<Integer, String> suffix;
+    private List<String> resolvedShorthand = null;
 
-    private final List<String> resolvedShorthand;
+    private String serializedNode = null;
 
-    private final String serializedNode;
+    // equivalence keys used when deduplicating nodes
+    private NodeEquivalenceKey almostEqualsKey = null;
+    private NodeEquivalenceKey equalsIgnoringValueKey = null;
+    private NodeEquivalenceKey equalsIgnoringValueOrTempKey = null;
 
     /**
      * Make an immutable node instance
@@ -212,79 +216,147 @@ public final class ImmutableNode implements Node {
             world = null;
         }
 
-        this.permission = NodeFactory.unescapeDelimiters(permission, "/", "-", "$", "(", ")", "=", ",");
-        this.value = value;
-        this.override = override;
+        this.permission = NodeFactory.intern(NodeFactory.unescapeDelimiters(permission, "/", "-", "$", "(", ")", "=", ","));
         this.expireAt = expireAt;
-        this.server = NodeFactory.unescapeDelimiters(server, "/", "-");
-        this.world = NodeFactory.unescapeDelimiters(world, "/", "-");
+        this.server = NodeFactory.intern(NodeFactory.unescapeDelimiters(server, "/", "-"));
+        this.world = NodeFactory.intern(NodeFactory.unescapeDelimiters(world, "/", "-"));
         this.contexts = contexts == null ? ContextSet.empty() : contexts.makeImmutable();
 
         // Setup state
-        isGroup = this.permission.toLowerCase().startsWith("group.");
-        if (isGroup) {
-            groupName = this.permission.substring("group.".length()).toLowerCase();
+        int flags = 0;
+        if (value) {
+            flags |= VALUE;
+        }
+        if (override) {
+            flags |= OVERRIDE;
+        }
+        if (this.permission.toLowerCase().startsWith("group.")) {
+            flags |= GROUP;
+        }
+        if (this.permission.endsWith(".*")) {
+            flags |= WILDCARD;
+        }
+        if (NodeFactory.isMetaNode(this.permission)) {
+            flags |= META;
         }
+        if (NodeFactory.isPrefixNode(this.permission)) {
+            flags |= PREFIX;
+        }
+        if (NodeFactory.isSuffixNode(this.permission)) {
+            flags |= SUFFIX;
+        }
+        this.flags = (byte) flags;
 
-        isWildcard = this.permission.endsWith(".*");
-        wildcardLevel = (int) this.permission.chars().filter(num -> num == Character.getNumericValue('.')).count();
+        this.hashCode = calculateHashCode();
+    }
 
-        isMeta = NodeFactory.isMetaNode(this.permission);
-        if (isMeta) {
-            List<String> metaPart = Splitter.on(PatternCache.compileDelimitedMatcher(".", "\\")).limit(2).splitToList(getPermission().substring("meta.".length()));
-            meta = Maps.immutableEntry(MetaUtils.unescapeCharacters(metaPart.get(0)), MetaUtils.unescapeCharacters(metaPart.get(1)));
-        }
+    private boolean hasFlag(int flag) {
+        return (flags & flag) != 0;
+    }
 
-        isPrefix = NodeFactory.isPrefixNode(this.permission);
-        if (isPrefix) {
-            List<String> prefixPart = Splitter.on(PatternCache.compileDelimitedMatcher(".", "\\")).limit(2).splitToList(getPermission().substring("prefix.".length()));
-            Integer i = Integer.parseInt(prefixPart.get(0));
-            prefix = Maps.immutableEntry(i, MetaUtils.unescapeCharacters(prefixPart.get(1)));
+    /**
+     * Gets the key of this node for {@link #almostEquals(Node)} comparisons.
+     *
+     * @return the equivalence key
+     */
+    public NodeEquivalenceKey getAlmostEqualsKey() {
+        NodeEquivalenceKey key = almostEqualsKey;
+        if (key == null) {
+            key = NodeEquivalenceKey.of(this, isTemporary() ? NodeEquivalenceKey.TEMPORARY : 0L);
+            almostEqualsKey = key;
         }
+        return key;
+    }
 
-        isSuffix = NodeFactory.isSuffixNode(this.permission);
-        if (isSuffix) {
-            List<String> suffixPart = Splitter.on(PatternCache.compileDelimitedMatcher(".", "\\")).limit(2).splitToList(getPermission().substring("suffix.".length()));
-            Integer i = Integer.parseInt(suffixPart.get(0));
-            suffix = Maps.immutableEntry(i, MetaUtils.unescapeCharacters(suffixPart.get(1)));
+    /**
+     * Gets the key of this node for {@link #equalsIgnoringValue(Node)} comparisons.
+     *
+     * @return the equivalence key
+     */
+    public NodeEquivalenceKey getEqualsIgnoringValueKey() {
+        NodeEquivalenceKey key = equalsIgnoringValueKey;
+        if (key == null) {
+            key = NodeEquivalenceKey.of(this, expireAt);
+            equalsIgnoringValueKey = key;
         }
+        return key;
+    }
 
-        resolvedShorthand = ImmutableList.copyOf(ShorthandParser.parseShorthand(getPermission()));
-        serializedNode = calculateSerializedNode();
-
-        MutableContextSet fullContexts = this.contexts.mutableCopy();
-        if (isServerSpecific()) {
-            fullContexts.add("server", this.server);
-        }
-        if (isWorldSpecific()) {
-            fullContexts.add("world", this.world);
+    /**
+     * Gets the key of this node for {@link #equalsIgnoringValueOrTemp(Node)} comparisons.
+     *
+     * @return the equivalence key
+     */
+    public NodeEquivalenceKey getEqualsIgnoringValueOrTempKey() {
+        NodeEquivalenceKey key = equalsIgnoringValueOrTempKey;
+        if (key == null) {
+            key = NodeEquivalenceKey.of(this, 0L);
+            equalsIgnoringValueOrTempKey = key;
         }
+        return key;
+    }
 
-        this.fullContexts = fullContexts.makeImmutable();
-        this.optServer = Optional.ofNullable(this.server);
-        this.optWorld = Optional.ofNullable(this.world);
+    @Override
+    public Boolean getValue() {
+        return hasFlag(VALUE);
+    }
+
+    @Override
+    public boolean isOverride() {
+        return hasFlag(OVERRIDE);
     }
 
     @Override
     public Tristate getTristate() {
-        return Tristate.fromBoolean(value);
+        return Tristate.fromBoolean(hasFlag(VALUE));
     }
 
     @Override
     public boolean isNegated() {
-        return !value;
+        return !hasFlag(VALUE);
     }
 
     @Override
     public Optional<String> getServer() {
+        Optional<String> optServer = this.optServer;
+        if (optServer == null) {
+            optServer = Optional.ofNullable(server);
+            this.optServer = optServer;
+        }
         return optServer;
     }
 
     @Override
     public Optional<String> getWorld() {
+        Optional<String> optWorld = this.optWorld;
+        if (optWorld == null) {
+            optWorld = Optional.ofNullable(world);
+            this.optWorld = optWorld;
+        }
         return optWorld;
     }
 
+    @Override
+    public ImmutableContextSet getFullContexts() {
+        ImmutableContextSet fullContexts = this.fullContexts;
+        if (fullContexts == null) {
+            if (server == null && world == null) {
+                fullContexts = contexts;
+            } else {
+                MutableContextSet set = contexts.mutableCopy();
+                if (server != null) {
+                    set.add("server", server);
+                }
+                if (world != null) {
+                    set.add("world", world);
+                }
+                fullContexts = set.makeImmutable();
+            }
+            this.fullContexts = fullContexts;
+        }
+        return fullContexts;
+    }
+
     @Override
     public boolean isServerSpecific() {
         return server != null;
@@ -340,58 +412,92 @@ public final class ImmutableNode implements Node {
 
     @Override
     public boolean isGroupNode() {
-        return isGroup;
+        return hasFlag(GROUP);
     }
 
     @Override
     public String getGroupName() {
         Preconditions.checkState(isGroupNode(), "Node is not a group node");
+        String groupName = this.groupName;
+        if (groupName == null) {
+            groupName = permission.substring("group.".length()).toLowerCase();
+            this.groupName = groupName;
+        }
         return groupName;
     }
 
     @Override
     public boolean isWildcard() {
-        return isWildcard;
+        return hasFlag(WILDCARD);
     }
 
     @Override
     public int getWildcardLevel() {
+        int wildcardLevel = this.wildcardLevel;
+        if (wildcardLevel == -1) {
+            wildcardLevel = (int) permission.chars().filter(num -> num == Character.getNumericValue('.')).count();
+            this.wildcardLevel = wildcardLevel;
+        }
         return wildcardLevel;
     }
 
     @Override
     public boolean isMeta() {
-        return isMeta;
+        return hasFlag(META);
     }
 
+    @SuppressWarnings("deprecation")
     @Override
     public Map.Entry<String, String> getMeta() {
         Preconditions.checkState(isMeta(), "Node is not a meta node");
+        Map.Entry<String, String> meta = this.meta;
+        if (meta == null) {
+            List<String> metaPart = Splitter.on(PatternCache.compileDelimitedMatcher(".", "\\")).limit(2).splitToList(permission.substring("meta.".length()));
+            meta = Maps.immutableEntry(MetaUtils.unescapeCharacters(metaPart.get(0)), MetaUtils.unescapeCharacters(metaPart.get(1)));
+            this.meta = meta;
+        }
         return meta;
     }
 
     @Override
     public boolean isPrefix() {
-        return isPrefix;
+        return hasFlag(PREFIX);
     }
 
     @Override
     public Map.Entry<Integer, String> getPrefix() {
         Preconditions.checkState(isPrefix(), "Node is not a prefix node");
+        Map.Entry<Integer, String> prefix = this.prefix;
+        if (prefix == null) {
+            prefix = parseChatMeta("prefix.");
+            this.prefix = prefix;
+        }
         return prefix;
     }
 
     @Override
     public boolean isSuffix() {
-        return isSuffix;
+        return hasFlag(SUFFIX);
     }
 
     @Override
     public Map.Entry<Integer, String> getSuffix() {
         Preconditions.checkState(isSuffix(), "Node is not a suffix node");
+        Map.Entry<Integer, String> suffix = this.suffix;
+        if (suffix == null) {
+            suffix = parseChatMeta("suffix.");
+            this.suffix = suffix;
+        }
         return suffix;
     }
 
+    @SuppressWarnings("deprecation")
+    private Map.Entry<Integer, String> parseChatMeta(String type) {
+        List<String> parts = Splitter.on(PatternCache.compileDelimitedMatcher(".", "\\")).limit(2).splitToList(permission.substring(type.length()));
+        Integer i = Integer.parseInt(parts.get(0));
+        return Maps.immutableEntry(i, MetaUtils.unescapeCharacters(parts.get(1)));
+    }
+
     @Override
     public boolean shouldApply(boolean includeGlobal, boolean includeGlobalWorld, String server, String world, ContextSet context, boolean applyRegex) {
         return shouldApplyOnServer(server, includeGlobal, applyRegex) && shouldApplyOnWorld(world, includeGlobalWorld, applyRegex) && shouldApplyWithContext(context, false);
@@ -483,11 +589,21 @@ public final class ImmutableNode implements Node {
 
     @Override
     public List<String> resolveShorthand() {
+        List<String> resolvedShorthand = this.resolvedShorthand;
+        if (resolvedShorthand == null) {
+            resolvedShorthand = ImmutableList.copyOf(ShorthandParser.parseShorthand(permission));
+            this.resolvedShorthand = resolvedShorthand;
+        }
         return resolvedShorthand;
     }
 
     @Override
     public String toSerializedNode() {
+        String serializedNode = this.serializedNode;
+        if (serializedNode == null) {
+            serializedNode = calculateSerializedNode();
+            this.serializedNode = serializedNode;
+        }
         return serializedNode;
     }
 
@@ -627,6 +743,45 @@ public final class ImmutableNode implements Node {
         return other.getContexts().equals(this.getContexts());
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (!(o instanceof ImmutableNode)) return false;
+        final ImmutableNode other = (ImmutableNode) o;
+
+        return this.hashCode == other.hashCode &&
+                this.flags == other.flags &&
+                this.expireAt == other.expireAt &&
+                this.permission.equals(other.permission) &&
+                Objects.equals(this.server, other.server) &&
+                Objects.equals(this.world, other.world) &&
+                this.contexts.equals(other.contexts);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    private int calculateHashCode() {
+        final int PRIME = 59;
+        int result = 1;
+        result = result * PRIME + permission.hashCode();
+        result = result * PRIME + Boolean.hashCode(hasFlag(VALUE));
+        result = result * PRIME + (hasFlag(OVERRIDE) ? 79 : 97);
+        result = result * PRIME + (server == null ? 43 : server.hashCode());
+        result = result * PRIME + (world == null ? 43 : world.hashCode());
+        result = result * PRIME + (int) (expireAt >>> 32 ^ expireAt);
+        result = result * PRIME + contexts.hashCode();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ImmutableNode(permission=" + permission + ", value=" + hasFlag(VALUE) + ", override=" + hasFlag(OVERRIDE) +
+                ", server=" + server + ", world=" + world + ", expireAt=" + expireAt + ", contexts=" + contexts + ")";
+    }
+
     @Override
     public Boolean setValue(Boolean value) {
         throw new UnsupportedOperationException();
@@ -44,6 +44,10 @@ import me.lucko.luckperms.api.Node;
 import me.lucko.luckperms.api.Tristate;
 import me.lucko.luckperms.api.context.ContextSet;
 import me.lucko.luckperms.api.context.ImmutableContextSet;
+import me.lucko.luckperms.api.event.node.NodeAddEvent;
+import me.lucko.luckperms.api.event.node.NodeClearEvent;
+import me.lucko.luckperms.api.event.node.NodeMutateEvent;
+import me.lucko.luckperms.api.event.node.NodeRemoveEvent;
 import me.lucko.luckperms.common.api.delegates.PermissionHolderDelegate;
 import me.lucko.luckperms.common.caching.MetaAccumulator;
 import me.lucko.luckperms.common.caching.handlers.GroupReference;
@@ -57,12 +61,14 @@ import me.lucko.luckperms.common.core.PriorityComparator;
 import me.lucko.luckperms.common.core.TemporaryModifier;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.utils.ExtractedContexts;
+import me.lucko.luckperms.common.utils.ImmutableCollectors;
 import me.lucko.luckperms.common.utils.ImmutableLocalizedNode;
 import me.lucko.luckperms.common.utils.NodeTools;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -75,6 +81,7 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Predicate;
@@ -93,9 +100,9 @@ import java.util.stream.Collectors;
  * flattened using the methods in {@link NodeTools}. This is significantly faster than trying to prevent duplicates
  * throughout the process of accumulation, and reduces the need for too much caching.</p>
  *
- * <p>Cached state is avoided in these instances to cut down on memory footprint. The nodes are stored indexed to the
- * contexts they apply in, so doing context specific querying should be fast. Caching would be ineffective here, due to
- * the potentially vast amount of contexts being used by nodes, and the potential for very large inheritance trees.</p>
+ * <p>The nodes are stored indexed to the contexts they apply in, so doing context specific querying should be fast.
+ * Contextual lookups are resolved as a list of {@link InheritanceSegment}s. Groups cache the segments resolved from
+ * them for each set of contexts, so resolving a holder only requires walking its direct parents.</p>
  */
 @RequiredArgsConstructor(access = AccessLevel.PROTECTED)
 public abstract class PermissionHolder {
@@ -124,11 +131,11 @@ public abstract class PermissionHolder {
      * ContextSet. ContextSets are ordered first by the presence of a server key, then by the presence of a world
      * key, and finally by the overall size of the set. Nodes are ordered according to the priority rules
      * defined in {@link NodeComparator}.</p>
+     *
+     * <p>A published map is never modified. Readers use the current instance without locking, and writers publish
+     * a modified copy using {@link #mutateNodes(AtomicReference, Predicate)}.</p>
      */
-    private final SortedSetMultimap<ImmutableContextSet, Node> nodes = MultimapBuilder
-            .treeKeys(ContextSetComparator.reverse())
-            .treeSetValues(NodeComparator.reverse())
-            .build();
+    private final AtomicReference<ImmutableSetMultimap<ImmutableContextSet, Node>> nodes = new AtomicReference<>(ImmutableSetMultimap.of());
 
     /**
      * The holders transient nodes.
@@ -142,10 +149,7 @@ public abstract class PermissionHolder {
      * key, and finally by the overall size of the set. Nodes are ordered according to the priority rules
      * defined in {@link NodeComparator}.</p>
      */
-    private final SortedSetMultimap<ImmutableContextSet, Node> transientNodes = MultimapBuilder
-            .treeKeys(ContextSetComparator.reverse())
-            .treeSetValues(NodeComparator.reverse())
-            .build();
+    private final AtomicReference<ImmutableSetMultimap<ImmutableContextSet, Node>> transientNodes = new AtomicReference<>(ImmutableSetMultimap.of());
 
     /**
      * Lock used by Storage implementations to prevent concurrent read/writes
@@ -159,7 +163,35 @@ public abstract class PermissionHolder {
     @Getter
     private final Set<Runnable> stateListeners = ConcurrentHashMap.newKeySet();
 
+    /**
+     * Lock used when calculating or invalidating the cached weight and parent order of this holder
+     */
+    private final Object weightLock = new Object();
+
+    /**
+     * The weight of this holder, or null if it needs to be recalculated.
+     */
+    private volatile OptionalInt weight = null;
+
+    /**
+     * The group nodes held by this holder, ordered by the weight of the group they refer to, or null if they
+     * need to be recalculated.
+     */
+    private volatile List<Node> sortedParents = null;
+
+    /**
+     * Incremented each time the sorted parents are invalidated. Guarded by the weight lock.
+     */
+    private int sortedParentsVersion = 0;
+
     private void invalidateCache() {
+        // our own nodes have changed, so both the weight and parents may be different
+        synchronized (weightLock) {
+            weight = null;
+            sortedParents = null;
+            sortedParentsVersion++;
+        }
+
         // Invalidate listeners
         for (Runnable r : stateListeners) {
             try {
@@ -174,10 +206,31 @@ public abstract class PermissionHolder {
     }
 
     protected void declareState() {
-        /* only declare state of groups. the state manager isn't really being used now the caches in this class
-           are gone, but it's useful for command output. */
-        if (this instanceof Group) {
-            plugin.getCachedStateManager().putAll(toReference(), getGroupReferences());
+        // declare the groups this holder inherits from, so changes to them can be propagated back to this holder
+        plugin.getCachedStateManager().putAll(toReference(), getGroupReferences());
+    }
+
+    /**
+     * Invalidates any cached data this holder has resolved from the groups it inherits from.
+     *
+     * <p>Called when one of the groups this holder inherits from changes.</p>
+     */
+    public void invalidateInheritanceCaches() {
+        // the weight of a parent may have changed
+        synchronized (weightLock) {
+            sortedParents = null;
+            sortedParentsVersion++;
+        }
+    }
+
+    /**
+     * Invalidates the cached weight of this holder.
+     *
+     * <p>Called when the weights defined in the configuration change.</p>
+     */
+    public void invalidateWeight() {
+        synchronized (weightLock) {
+            weight = null;
         }
     }
 
@@ -203,38 +256,102 @@ public abstract class PermissionHolder {
     public abstract PermissionHolderDelegate getDelegate();
 
     /**
-     * Returns an immutable copy of this objects nodes
+     * Returns an immutable snapshot of this objects nodes
      *
-     * @return an immutable copy of the multimap storing this objects nodes
+     * @return the multimap storing this objects nodes
      */
     public ImmutableSetMultimap<ImmutableContextSet, Node> getNodes() {
-        synchronized (nodes) {
-            return ImmutableSetMultimap.copyOf(nodes);
-        }
+        return nodes.get();
     }
 
     /**
-     * Returns an immutable copy of this objects transient nodes
+     * Returns an immutable snapshot of this objects transient nodes
      *
-     * @return an immutable copy of the multimap storing this objects transient nodes
+     * @return the multimap storing this objects transient nodes
      */
     public ImmutableSetMultimap<ImmutableContextSet, Node> getTransientNodes() {
-        synchronized (transientNodes) {
-            return ImmutableSetMultimap.copyOf(transientNodes);
+        return transientNodes.get();
+    }
+
+    private static SortedSetMultimap<ImmutableContextSet, Node> createNodeMap() {
+        return MultimapBuilder
+                .treeKeys(ContextSetComparator.reverse())
+                .treeSetValues(NodeComparator.reverse())
+                .build();
+    }
+
+    private static ImmutableSetMultimap<ImmutableContextSet, Node> sortNodes(Iterable<Node> nodes) {
+        SortedSetMultimap<ImmutableContextSet, Node> map = createNodeMap();
+        for (Node n : nodes) {
+            map.put(n.getFullContexts().makeImmutable(), n);
+        }
+        return ImmutableSetMultimap.copyOf(map);
+    }
+
+    /**
+     * Applies a mutation to one of this objects node maps.
+     *
+     * <p>The mutation is applied to a sorted, mutable copy of the current map. If it reports that a change was made,
+     * the copy is published in place of the current map. If another writer published a change in the meantime, the
+     * mutation is retried against the newer map.</p>
+     *
+     * @param ref the node map to mutate
+     * @param mutation the mutation, which should return true if a change was made
+     * @return true if a change was made and published
+     */
+    private static boolean mutateNodes(AtomicReference<ImmutableSetMultimap<ImmutableContextSet, Node>> ref, Predicate<SortedSetMultimap<ImmutableContextSet, Node>> mutation) {
+        while (true) {
+            ImmutableSetMultimap<ImmutableContextSet, Node> current = ref.get();
+
+            SortedSetMultimap<ImmutableContextSet, Node> working = createNodeMap();
+            working.putAll(current);
+            if (!mutation.test(working)) {
+                return false;
+            }
+
+            if (ref.compareAndSet(current, ImmutableSetMultimap.copyOf(working))) {
+                return true;
+            }
         }
     }
 
+    /**
+     * Returns an immutable copy of the nodes in one of this objects node maps
+     *
+     * @param transientData if the transient nodes should be copied instead of the persistent ones
+     * @return an immutable set containing the nodes
+     */
+    private ImmutableSet<Node> getSnapshot(boolean transientData) {
+        return ImmutableSet.copyOf((transientData ? transientNodes : nodes).get().values());
+    }
+
+    /**
+     * Returns a snapshot of this objects nodes to be passed to a node mutation event, or null if
+     * nothing is listening for the event, in which case the snapshot and event can be skipped.
+     *
+     * @param eventClass the class of the event which will be fired after the mutation
+     * @param transientData if the transient nodes are being mutated
+     * @return a snapshot of the nodes, or null
+     */
+    private ImmutableSet<Node> getEventSnapshot(Class<? extends NodeMutateEvent> eventClass, boolean transientData) {
+        if (!plugin.getApiProvider().getEventFactory().shouldPost(eventClass)) {
+            return null;
+        }
+        return getSnapshot(transientData);
+    }
+
     /**
      * Sets this objects nodes to the values in the set
      *
+     * <p>Nothing is invalidated if the object already had exactly the given nodes, so reloading unchanged data
+     * from storage is cheap.</p>
+     *
      * @param set the set of nodes to apply to the object
      */
     public void setNodes(Set<Node> set) {
-        synchronized (nodes) {
-            nodes.clear();
-            for (Node n : set) {
-                nodes.put(n.getFullContexts().makeImmutable(), n);
-            }
+        ImmutableSetMultimap<ImmutableContextSet, Node> map = sortNodes(set);
+        if (nodes.getAndSet(map).equals(map)) {
+            return;
         }
         invalidateCache();
     }
@@ -245,28 +362,24 @@ public abstract class PermissionHolder {
      * @param multimap the replacement multimap
      */
     public void replaceNodes(Multimap<ImmutableContextSet, Node> multimap) {
-        synchronized (nodes) {
-            nodes.clear();
-            nodes.putAll(multimap);
-        }
+        SortedSetMultimap<ImmutableContextSet, Node> map = createNodeMap();
+        map.putAll(multimap);
+        nodes.set(ImmutableSetMultimap.copyOf(map));
         invalidateCache();
     }
 
     public void setTransientNodes(Set<Node> set) {
-        synchronized (transientNodes) {
-            transientNodes.clear();
-            for (Node n : set) {
-                transientNodes.put(n.getFullContexts().makeImmutable(), n);
-            }
+        ImmutableSetMultimap<ImmutableContextSet, Node> map = sortNodes(set);
+        if (transientNodes.getAndSet(map).equals(map)) {
+            return;
         }
         invalidateCache();
     }
 
     public void replaceTransientNodes(Multimap<ImmutableContextSet, Node> multimap) {
-        synchronized (transientNodes) {
-            transientNodes.clear();
-            transientNodes.putAll(multimap);
-        }
+        SortedSetMultimap<ImmutableContextSet, Node> map = createNodeMap();
+        map.putAll(multimap);
+        transientNodes.set(ImmutableSetMultimap.copyOf(map));
         invalidateCache();
     }
 
@@ -277,26 +390,15 @@ public abstract class PermissionHolder {
      */
     public LinkedHashSet<Node> mergePermissions() {
         LinkedHashSet<Node> ret = new LinkedHashSet<>();
-        synchronized (transientNodes) {
-            ret.addAll(transientNodes.values());
-        }
-
-        synchronized (nodes) {
-            ret.addAll(nodes.values());
-        }
-
+        ret.addAll(transientNodes.get().values());
+        ret.addAll(nodes.get().values());
         return ret;
     }
 
     public List<Node> mergePermissionsToList() {
         List<Node> ret = new ArrayList<>();
-        synchronized (transientNodes) {
-            ret.addAll(transientNodes.values());
-        }
-        synchronized (nodes) {
-            ret.addAll(nodes.values());
-        }
-
+        ret.addAll(transientNodes.get().values());
+        ret.addAll(nodes.get().values());
         return ret;
     }
 
@@ -306,149 +408,89 @@ public abstract class PermissionHolder {
         return ret;
     }
 
-    public LinkedHashSet<Node> flattenNodes() {
-        synchronized (nodes) {
-            return new LinkedHashSet<>(nodes.values());
+    private static void addMatching(Collection<Node> accumulator, ImmutableSetMultimap<ImmutableContextSet, Node> map, ContextSet filter) {
+        for (Map.Entry<ImmutableContextSet, Collection<Node>> e : map.asMap().entrySet()) {
+            if (e.getKey().isSatisfiedBy(filter)) {
+                accumulator.addAll(e.getValue());
+            }
         }
     }
 
-    public LinkedHashSet<Node> flattenNodes(ContextSet filter) {
-        synchronized (nodes) {
-            LinkedHashSet<Node> set = new LinkedHashSet<>();
-            for (Map.Entry<ImmutableContextSet, Collection<Node>> e : nodes.asMap().entrySet()) {
-                if (e.getKey().isSatisfiedBy(filter)) {
-                    set.addAll(e.getValue());
-                }
-            }
+    public LinkedHashSet<Node> flattenNodes() {
+        return new LinkedHashSet<>(nodes.get().values());
+    }
 
-            return set;
-        }
+    public LinkedHashSet<Node> flattenNodes(ContextSet filter) {
+        LinkedHashSet<Node> set = new LinkedHashSet<>();
+        addMatching(set, nodes.get(), filter);
+        return set;
     }
 
     public LinkedHashSet<Node> flattenTransientNodes() {
-        synchronized (transientNodes) {
-            return new LinkedHashSet<>(transientNodes.values());
-        }
+        return new LinkedHashSet<>(transientNodes.get().values());
     }
 
     public LinkedHashSet<Node> flattenTransientNodes(ContextSet filter) {
-        synchronized (transientNodes) {
-            LinkedHashSet<Node> set = new LinkedHashSet<>();
-            for (Map.Entry<ImmutableContextSet, Collection<Node>> e : transientNodes.asMap().entrySet()) {
-                if (e.getKey().isSatisfiedBy(filter)) {
-                    set.addAll(e.getValue());
-                }
-            }
-
-            return set;
-        }
+        LinkedHashSet<Node> set = new LinkedHashSet<>();
+        addMatching(set, transientNodes.get(), filter);
+        return set;
     }
 
     public LinkedHashSet<Node> flattenAndMergeNodes(ContextSet filter) {
         LinkedHashSet<Node> set = new LinkedHashSet<>();
-        synchronized (transientNodes) {
-            for (Map.Entry<ImmutableContextSet, Collection<Node>> e : transientNodes.asMap().entrySet()) {
-                if (e.getKey().isSatisfiedBy(filter)) {
-                    set.addAll(e.getValue());
-                }
-            }
-        }
-        synchronized (nodes) {
-            for (Map.Entry<ImmutableContextSet, Collection<Node>> e : nodes.asMap().entrySet()) {
-                if (e.getKey().isSatisfiedBy(filter)) {
-                    set.addAll(e.getValue());
-                }
-            }
-        }
+        addMatching(set, transientNodes.get(), filter);
+        addMatching(set, nodes.get(), filter);
         return set;
     }
 
     public List<Node> flattenNodesToList() {
-        synchronized (nodes) {
-             return new ArrayList<>(nodes.values());
-        }
+        return new ArrayList<>(nodes.get().values());
     }
 
     public List<Node> flattenNodesToList(ContextSet filter) {
-        synchronized (nodes) {
-            List<Node> set = new ArrayList<>();
-            for (Map.Entry<ImmutableContextSet, Collection<Node>> e : nodes.asMap().entrySet()) {
-                if (e.getKey().isSatisfiedBy(filter)) {
-                    set.addAll(e.getValue());
-                }
-            }
-
-            return set;
-        }
+        List<Node> list = new ArrayList<>();
+        addMatching(list, nodes.get(), filter);
+        return list;
     }
 
     public List<Node> flattenTransientNodesToList() {
-        synchronized (transientNodes) {
-            return new ArrayList<>(transientNodes.values());
-        }
+        return new ArrayList<>(transientNodes.get().values());
     }
 
     public List<Node> flattenTransientNodesToList(ContextSet filter) {
-        synchronized (transientNodes) {
-            if (transientNodes.isEmpty()) {
-                return Collections.emptyList();
-            }
-
-            List<Node> set = new ArrayList<>();
-            for (Map.Entry<ImmutableContextSet, Collection<Node>> e : transientNodes.asMap().entrySet()) {
-                if (e.getKey().isSatisfiedBy(filter)) {
-                    set.addAll(e.getValue());
-                }
-            }
-
-            return set;
+        ImmutableSetMultimap<ImmutableContextSet, Node> transientNodes = this.transientNodes.get();
+        if (transientNodes.isEmpty()) {
+            return Collections.emptyList();
         }
+
+        List<Node> list = new ArrayList<>();
+        addMatching(list, transientNodes, filter);
+        return list;
     }
 
     public List<Node> flattenAndMergeNodesToList(ContextSet filter) {
-        List<Node> set = new ArrayList<>();
-        synchronized (transientNodes) {
-            for (Map.Entry<ImmutableContextSet, Collection<Node>> e : transientNodes.asMap().entrySet()) {
-                if (e.getKey().isSatisfiedBy(filter)) {
-                    set.addAll(e.getValue());
-                }
-            }
-        }
-        synchronized (nodes) {
-            for (Map.Entry<ImmutableContextSet, Collection<Node>> e : nodes.asMap().entrySet()) {
-                if (e.getKey().isSatisfiedBy(filter)) {
-                    set.addAll(e.getValue());
-                }
-            }
-        }
-        return set;
+        List<Node> list = new ArrayList<>();
+        addMatching(list, transientNodes.get(), filter);
+        addMatching(list, nodes.get(), filter);
+        return list;
     }
 
     public boolean removeIf(Predicate<Node> predicate) {
-        boolean result;
-        ImmutableSet<Node> before = ImmutableSet.copyOf(flattenNodes());
-
-        synchronized (nodes) {
-            result = nodes.values().removeIf(predicate);
-        }
+        ImmutableSet<Node> before = getEventSnapshot(NodeClearEvent.class, false);
 
-        if (!result) {
+        if (!mutateNodes(nodes, map -> map.values().removeIf(predicate))) {
             return false;
         }
 
         invalidateCache();
-        ImmutableSet<Node> after = ImmutableSet.copyOf(flattenNodes());
-        plugin.getApiProvider().getEventFactory().handleNodeClear(this, before, after);
+        if (before != null) {
+            plugin.getApiProvider().getEventFactory().handleNodeClear(this, before, getSnapshot(false));
+        }
         return true;
     }
 
     public boolean removeIfTransient(Predicate<Node> predicate) {
-        boolean result;
-
-        synchronized (nodes) {
-            result = transientNodes.values().removeIf(predicate);
-        }
-
+        boolean result = mutateNodes(transientNodes, map -> map.values().removeIf(predicate));
         if (result) {
             invalidateCache();
         }
@@ -457,57 +499,104 @@ public abstract class PermissionHolder {
     }
 
     /**
-     * Resolves inherited nodes and returns them
+     * Resolves the segments of the inheritance tree which apply to this holder, in the order they should be applied.
      *
-     * @param excludedGroups a list of groups to exclude
-     * @param context       context to decide if groups should be applied
-     * @return a set of nodes
+     * <p>The first segment always represents this holder. The segments of parent groups are either obtained from the
+     * cache held by each group, or resolved by walking the inheritance tree.</p>
+     *
+     * @param accumulator the list to add the segments to
+     * @param excludedGroups a set of groups to exclude, groups resolved by this method are added to it
+     * @param context the contexts of the lookup
+     * @param useCache if the cached inheritance of parent groups should be used
+     * @return the accumulator
      */
-    protected List<LocalizedNode> resolveInheritances(List<LocalizedNode> accumulator, Set<String> excludedGroups, ExtractedContexts context) {
-        if (accumulator == null) {
-            accumulator = new ArrayList<>();
-        }
-
-        if (excludedGroups == null) {
-            excludedGroups = new HashSet<>();
-        }
-
+    List<InheritanceSegment> resolveInheritanceSegments(List<InheritanceSegment> accumulator, Set<String> excludedGroups, ExtractedContexts context, boolean useCache) {
         if (this instanceof Group) {
             excludedGroups.add(getObjectName().toLowerCase());
         }
 
+        Contexts contexts = context.getContexts();
+
         // get and add the objects own nodes
         List<Node> nodes = flattenAndMergeNodesToList(context.getContextSet());
-        nodes.stream()
+        List<LocalizedNode> localizedNodes = nodes.stream()
                 .map(n -> ImmutableLocalizedNode.of(n, getObjectName()))
-                .forEach(accumulator::add);
-
-        Contexts contexts = context.getContexts();
-
-        // screw effectively final
-        Set<String> finalExcludedGroups = excludedGroups;
-        List<LocalizedNode> finalAccumulator = accumulator;
+                .collect(ImmutableCollectors.toImmutableList());
 
         // this allows you to negate parent permissions lower down the inheritance tree.
         // we can negate parent groups in a specific context at this level and prevent them from being applied.
+        // it also allows you to negate meta in specific contexts and have it override.
         // there's no way to distinct the stream below based on a custom comparator.
         NodeTools.removeSamePermission(nodes.iterator());
 
-        nodes.stream()
+        List<LocalizedNode> metaNodes = nodes.stream()
+                .filter(Node::getValue)
+                .filter(n -> n.isMeta() || n.isPrefix() || n.isSuffix())
+                .filter(n -> !(!contexts.isIncludeGlobal() && !n.isServerSpecific()) && !(!contexts.isIncludeGlobalWorld() && !n.isWorldSpecific()))
+                .map(n -> ImmutableLocalizedNode.of(n, getObjectName()))
+                .collect(ImmutableCollectors.toImmutableList());
+
+        accumulator.add(new InheritanceSegment(getObjectName().toLowerCase(), localizedNodes, metaNodes, getWeight()));
+
+        Set<Node> parentNodes = nodes.stream()
                 .filter(Node::getValue)
                 .filter(Node::isGroupNode)
                 .filter(n -> !(!contexts.isApplyGlobalGroups() && !n.isServerSpecific()) && !(!contexts.isApplyGlobalWorldGroups() && !n.isWorldSpecific()))
+                .collect(Collectors.toSet());
+
+        // the parents are already sorted by weight, so we just need to pick out the ones which apply
+        List<Group> parents = getSortedParents().stream()
+                .filter(parentNodes::contains)
                 .map(Node::getGroupName)
                 .distinct()
                 .map(n -> Optional.ofNullable(plugin.getGroupManager().getIfLoaded(n)))
                 .filter(Optional::isPresent)
                 .map(Optional::get)
-                .filter(g -> !finalExcludedGroups.contains(g.getObjectName().toLowerCase()))
-                .sorted((o1, o2) -> {
-                    int result = Integer.compare(o1.getWeight().orElse(0), o2.getWeight().orElse(0));
-                    return result == 1 ? -1 : 1;
-                })
-                .forEach(group -> group.resolveInheritances(finalAccumulator, finalExcludedGroups, context));
+                .filter(g -> !excludedGroups.contains(g.getObjectName().toLowerCase()))
+                .collect(Collectors.toList());
+
+        for (Group group : parents) {
+            // the group may have already been resolved through a previous parent
+            if (excludedGroups.contains(group.getObjectName().toLowerCase())) {
+                continue;
+            }
+
+            if (!useCache) {
+                group.resolveInheritanceSegments(accumulator, excludedGroups, context, false);
+                continue;
+            }
+
+            // the cached segments are the result of a full walk from the group, so we just skip the
+            // segments of any groups which have already been applied.
+            for (InheritanceSegment segment : group.getCachedInheritance(context)) {
+                if (excludedGroups.add(segment.getGroup())) {
+                    accumulator.add(segment);
+                }
+            }
+        }
+
+        return accumulator;
+    }
+
+    /**
+     * Resolves inherited nodes and returns them
+     *
+     * @param excludedGroups a list of groups to exclude
+     * @param context       context to decide if groups should be applied
+     * @return a set of nodes
+     */
+    protected List<LocalizedNode> resolveInheritances(List<LocalizedNode> accumulator, Set<String> excludedGroups, ExtractedContexts context) {
+        if (accumulator == null) {
+            accumulator = new ArrayList<>();
+        }
+
+        if (excludedGroups == null) {
+            excludedGroups = new HashSet<>();
+        }
+
+        for (InheritanceSegment segment : resolveInheritanceSegments(new ArrayList<>(), excludedGroups, context, true)) {
+            accumulator.addAll(segment.getNodes());
+        }
 
         return accumulator;
     }
@@ -628,14 +717,36 @@ public abstract class PermissionHolder {
     }
 
     public Map<String, Boolean> exportNodes(ExtractedContexts context, boolean lowerCase) {
-        Contexts contexts = context.getContexts();
+        return exportNodes(resolveExportedNodes(context), context.getContexts(), lowerCase);
+    }
 
-        List<? extends Node> entries;
-        if (contexts.isApplyGroups()) {
-            entries = resolveInheritances(null, null, context);
+    /**
+     * Resolves the nodes which are exported for the given contexts, before they are filtered.
+     *
+     * <p>The result doesn't depend on the include global flags of the contexts, so it can be shared between
+     * lookups which only differ by them.</p>
+     *
+     * @param context the contexts of the lookup
+     * @return the resolved nodes
+     */
+    public List<? extends Node> resolveExportedNodes(ExtractedContexts context) {
+        if (context.getContexts().isApplyGroups()) {
+            return resolveInheritances(null, null, context);
         } else {
-            entries = flattenNodesToList(context.getContextSet());
+            return flattenNodesToList(context.getContextSet());
         }
+    }
+
+    /**
+     * Filters the resolved nodes for the given contexts, and exports them to a map.
+     *
+     * @param resolved the nodes returned by {@link #resolveExportedNodes(ExtractedContexts)}
+     * @param contexts the contexts of the lookup
+     * @param lowerCase if the permissions should be converted to lower case
+     * @return the exported permissions
+     */
+    public Map<String, Boolean> exportNodes(List<? extends Node> resolved, Contexts contexts, boolean lowerCase) {
+        List<Node> entries = new ArrayList<>(resolved);
 
         if (!contexts.isIncludeGlobal()) {
             entries.removeIf(n -> !n.isGroupNode() && !n.isServerSpecific());
@@ -673,51 +784,17 @@ public abstract class PermissionHolder {
             excludedGroups = new HashSet<>();
         }
 
-        if (this instanceof Group) {
-            excludedGroups.add(getObjectName().toLowerCase());
-        }
-
-        Contexts contexts = context.getContexts();
-
-        // screw effectively final
-        Set<String> finalExcludedGroups = excludedGroups;
-        MetaAccumulator finalAccumulator = accumulator;
-
-        // get and add the objects own nodes
-        List<Node> nodes = flattenAndMergeNodesToList(context.getContextSet());
-
-        // this allows you to negate parent permissions lower down the inheritance tree.
-        // it also allows you to negate meta in specific contexts and have it override.
-        // there's no way to distinct the stream below based on a custom comparator.
-        NodeTools.removeSamePermission(nodes.iterator());
-
-        nodes.stream()
-                .filter(Node::getValue)
-                .filter(n -> n.isMeta() || n.isPrefix() || n.isSuffix())
-                .filter(n -> !(!contexts.isIncludeGlobal() && !n.isServerSpecific()) && !(!contexts.isIncludeGlobalWorld() && !n.isWorldSpecific()))
-                .forEach(n -> finalAccumulator.accumulateNode(ImmutableLocalizedNode.of(n, getObjectName())));
+        for (InheritanceSegment segment : resolveInheritanceSegments(new ArrayList<>(), excludedGroups, context, true)) {
+            for (LocalizedNode n : segment.getMetaNodes()) {
+                accumulator.accumulateNode(n);
+            }
 
-        OptionalInt w = getWeight();
-        if (w.isPresent()) {
-            accumulator.accumulateWeight(w.getAsInt());
+            OptionalInt w = segment.getWeight();
+            if (w.isPresent()) {
+                accumulator.accumulateWeight(w.getAsInt());
+            }
         }
 
-        nodes.stream()
-                .filter(Node::getValue)
-                .filter(Node::isGroupNode)
-                .filter(n -> !(!contexts.isApplyGlobalGroups() && !n.isServerSpecific()) && !(!contexts.isApplyGlobalWorldGroups() && !n.isWorldSpecific()))
-                .map(Node::getGroupName)
-                .distinct()
-                .map(n -> Optional.ofNullable(plugin.getGroupManager().getIfLoaded(n)))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .filter(g -> !finalExcludedGroups.contains(g.getObjectName().toLowerCase()))
-                .sorted((o1, o2) -> {
-                    int result = Integer.compare(o1.getWeight().orElse(0), o2.getWeight().orElse(0));
-                    return result == 1 ? -1 : 1;
-                })
-                .forEach(group -> group.accumulateMeta(finalAccumulator, finalExcludedGroups, context));
-
         return accumulator;
     }
 
@@ -727,30 +804,40 @@ public abstract class PermissionHolder {
      * @return true if permissions had expired and were removed
      */
     public boolean auditTemporaryPermissions() {
-        boolean work = false;
         Set<Node> removed = new HashSet<>();
 
-        ImmutableSet<Node> before = ImmutableSet.copyOf(mergePermissions());
+        ImmutableSet<Node> before = plugin.getApiProvider().getEventFactory().shouldPost(NodeRemoveEvent.class) ? ImmutableSet.copyOf(mergePermissions()) : null;
 
-        synchronized (nodes) {
-            Iterator<Node> it = nodes.values().iterator();
-            while (it.hasNext()) {
-                Node entry = it.next();
-                if (entry.hasExpired()) {
-                    removed.add(entry);
-                    work = true;
-                    it.remove();
-                }
-            }
-        }
+        boolean work = removeExpired(nodes, removed);
+        work |= removeExpired(transientNodes, removed);
 
         if (work) {
             invalidateCache();
-            work = false;
         }
 
-        synchronized (transientNodes) {
-            Iterator<Node> it = transientNodes.values().iterator();
+        if (removed.isEmpty()) {
+            return false;
+        }
+
+        if (before != null) {
+            ImmutableSet<Node> after = ImmutableSet.copyOf(mergePermissions());
+            for (Node r : removed) {
+                plugin.getApiProvider().getEventFactory().handleNodeRemove(r, this, before, after);
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean removeExpired(AtomicReference<ImmutableSetMultimap<ImmutableContextSet, Node>> ref, Set<Node> removed) {
+        // avoid copying the map unless something has actually expired
+        if (ref.get().values().stream().noneMatch(Node::hasExpired)) {
+            return false;
+        }
+
+        return mutateNodes(ref, map -> {
+            boolean work = false;
+            Iterator<Node> it = map.values().iterator();
             while (it.hasNext()) {
                 Node entry = it.next();
                 if (entry.hasExpired()) {
@@ -759,27 +846,13 @@ public abstract class PermissionHolder {
                     it.remove();
                 }
             }
-        }
-
-        if (work) {
-            invalidateCache();
-        }
-
-        if (removed.isEmpty()) {
-            return false;
-        }
-
-        ImmutableSet<Node> after = ImmutableSet.copyOf(mergePermissions());
-
-        for (Node r : removed) {
-            plugin.getApiProvider().getEventFactory().handleNodeRemove(r, this, before, after);
-        }
-
-        return true;
+            return work;
+        });
     }
 
     public Optional<Node> getAlmostEquals(Node node, boolean t) {
-        for (Node n : t ? getTransientNodes().values() : getNodes().values()) {
+        // nodes which are almost equal share the same full contexts, so only that entry needs to be checked
+        for (Node n : (t ? transientNodes : nodes).get().get(node.getFullContexts().makeImmutable())) {
             if (n.almostEquals(node)) {
                 return Optional.of(n);
             }
@@ -887,20 +960,92 @@ public abstract class PermissionHolder {
      * @param node the node to set
      */
     public DataMutateResult setPermission(Node node) {
-        if (hasPermission(node, false) != Tristate.UNDEFINED) {
+        // groups implicitly hold their own group node, see #hasPermission(Node, boolean)
+        if (this instanceof Group && node.isGroupNode() && node.getGroupName().equalsIgnoreCase(getObjectName())) {
             return DataMutateResult.ALREADY_HAS;
         }
 
-        ImmutableSet<Node> before = ImmutableSet.copyOf(getNodes().values());
+        boolean post = plugin.getApiProvider().getEventFactory().shouldPost(NodeAddEvent.class);
+        ImmutableContextSet contexts = node.getFullContexts().makeImmutable();
+
+        // the check and the snapshots are made within the mutation, so they describe the exact maps it replaced and
+        // published. two concurrent calls can't both see the node as missing.
+        AtomicReference<ImmutableSet<Node>> before = new AtomicReference<>();
+        AtomicReference<ImmutableSet<Node>> after = new AtomicReference<>();
+        boolean changed = mutateNodes(nodes, map -> {
+            if (map.get(contexts).stream().anyMatch(n -> n.almostEquals(node))) {
+                return false;
+            }
+
+            if (post) {
+                before.set(ImmutableSet.copyOf(map.values()));
+            }
+            map.put(contexts, node);
+            if (post) {
+                after.set(ImmutableSet.copyOf(map.values()));
+            }
+            return true;
+        });
 
-        synchronized (nodes) {
-            nodes.put(node.getFullContexts().makeImmutable(), node);
+        if (!changed) {
+            return DataMutateResult.ALREADY_HAS;
         }
+
         invalidateCache();
 
-        ImmutableSet<Node> after = ImmutableSet.copyOf(getNodes().values());
+        if (post) {
+            plugin.getApiProvider().getEventFactory().handleNodeAdd(node, this, before.get(), after.get());
+        }
+        return DataMutateResult.SUCCESS;
+    }
+
+    /**
+     * Sets a number of permission nodes in a single operation.
+     *
+     * <p>Equivalent to calling {@link #setPermission(Node)} for each node, except that the node map is only copied
+     * and published once, and the caches are only invalidated once. This should be used for bulk writes, which
+     * would otherwise copy the whole map for every node they set.</p>
+     *
+     * @param toSet the nodes to set
+     * @return {@link DataMutateResult#SUCCESS} if any of the nodes were set, or
+     *         {@link DataMutateResult#ALREADY_HAS} if the holder already had all of them
+     */
+    public DataMutateResult setPermissions(Collection<Node> toSet) {
+        ImmutableSet<Node> before = getEventSnapshot(NodeAddEvent.class, false);
+
+        List<Node> added = new ArrayList<>();
+        boolean changed = mutateNodes(nodes, map -> {
+            // the mutation is retried if another writer publishes first
+            added.clear();
+
+            for (Node node : toSet) {
+                // groups implicitly hold their own group node, see #hasPermission(Node, boolean)
+                if (this instanceof Group && node.isGroupNode() && node.getGroupName().equalsIgnoreCase(getObjectName())) {
+                    continue;
+                }
 
-        plugin.getApiProvider().getEventFactory().handleNodeAdd(node, this, before, after);
+                ImmutableContextSet contexts = node.getFullContexts().makeImmutable();
+                if (map.get(contexts).stream().noneMatch(n -> n.almostEquals(node))) {
+                    map.put(contexts, node);
+                    added.add(node);
+                }
+            }
+
+            return !added.isEmpty();
+        });
+
+        if (!changed) {
+            return DataMutateResult.ALREADY_HAS;
+        }
+
+        invalidateCache();
+
+        if (before != null) {
+            ImmutableSet<Node> after = getSnapshot(false);
+            for (Node node : added) {
+                plugin.getApiProvider().getEventFactory().handleNodeAdd(node, this, before, after);
+            }
+        }
         return DataMutateResult.SUCCESS;
     }
 
@@ -924,17 +1069,19 @@ public abstract class PermissionHolder {
                     // Create a new node with the same properties, but add the expiry dates together
                     Node newNode = NodeFactory.builderFromExisting(node).setExpiry(previous.getExpiryUnixTime() + node.getSecondsTilExpiry()).build();
 
-                    ImmutableSet<Node> before = ImmutableSet.copyOf(getNodes().values());
+                    ImmutableSet<Node> before = getEventSnapshot(NodeAddEvent.class, false);
 
                     // Remove the old node & add the new one.
-                    synchronized (nodes) {
-                        nodes.remove(previous.getFullContexts().makeImmutable(), previous);
-                        nodes.put(newNode.getFullContexts().makeImmutable(), newNode);
-                    }
+                    mutateNodes(nodes, map -> {
+                        map.remove(previous.getFullContexts().makeImmutable(), previous);
+                        map.put(newNode.getFullContexts().makeImmutable(), newNode);
+                        return true;
+                    });
 
                     invalidateCache();
-                    ImmutableSet<Node> after = ImmutableSet.copyOf(getNodes().values());
-                    plugin.getApiProvider().getEventFactory().handleNodeAdd(newNode, this, before, after);
+                    if (before != null) {
+                        plugin.getApiProvider().getEventFactory().handleNodeAdd(newNode, this, before, getSnapshot(false));
+                    }
                     return Maps.immutableEntry(DataMutateResult.SUCCESS, newNode);
                 }
 
@@ -949,16 +1096,18 @@ public abstract class PermissionHolder {
                     // Only replace if the new expiry time is greater than the old one.
                     if (node.getExpiryUnixTime() > previous.getExpiryUnixTime()) {
 
-                        ImmutableSet<Node> before = ImmutableSet.copyOf(getNodes().values());
+                        ImmutableSet<Node> before = getEventSnapshot(NodeAddEvent.class, false);
 
-                        synchronized (nodes) {
-                            nodes.remove(previous.getFullContexts().makeImmutable(), previous);
-                            nodes.put(node.getFullContexts().makeImmutable(), node);
-                        }
+                        mutateNodes(nodes, map -> {
+                            map.remove(previous.getFullContexts().makeImmutable(), previous);
+                            map.put(node.getFullContexts().makeImmutable(), node);
+                            return true;
+                        });
 
                         invalidateCache();
-                        ImmutableSet<Node> after = ImmutableSet.copyOf(getNodes().values());
-                        plugin.getApiProvider().getEventFactory().handleNodeAdd(node, this, before, after);
+                        if (before != null) {
+                            plugin.getApiProvider().getEventFactory().handleNodeAdd(node, this, before, getSnapshot(false));
+                        }
                         return Maps.immutableEntry(DataMutateResult.SUCCESS, node);
                     }
                 }
@@ -981,16 +1130,14 @@ public abstract class PermissionHolder {
             return DataMutateResult.ALREADY_HAS;
         }
 
-        ImmutableSet<Node> before = ImmutableSet.copyOf(getTransientNodes().values());
+        ImmutableSet<Node> before = getEventSnapshot(NodeAddEvent.class, true);
 
-        synchronized (transientNodes) {
-            transientNodes.put(node.getFullContexts().makeImmutable(), node);
-        }
+        mutateNodes(transientNodes, map -> map.put(node.getFullContexts().makeImmutable(), node));
         invalidateCache();
 
-        ImmutableSet<Node> after = ImmutableSet.copyOf(getTransientNodes().values());
-
-        plugin.getApiProvider().getEventFactory().handleNodeAdd(node, this, before, after);
+        if (before != null) {
+            plugin.getApiProvider().getEventFactory().handleNodeAdd(node, this, before, getSnapshot(true));
+        }
         return DataMutateResult.SUCCESS;
     }
 
@@ -1004,15 +1151,14 @@ public abstract class PermissionHolder {
             return DataMutateResult.LACKS;
         }
 
-        ImmutableSet<Node> before = ImmutableSet.copyOf(getNodes().values());
+        ImmutableSet<Node> before = getEventSnapshot(NodeRemoveEvent.class, false);
 
-        synchronized (nodes) {
-            this.nodes.get(node.getFullContexts().makeImmutable()).removeIf(e -> e.almostEquals(node));
-        }
+        mutateNodes(nodes, map -> map.get(node.getFullContexts().makeImmutable()).removeIf(e -> e.almostEquals(node)));
         invalidateCache();
 
-        ImmutableSet<Node> after = ImmutableSet.copyOf(getNodes().values());
-        plugin.getApiProvider().getEventFactory().handleNodeRemove(node, this, before, after);
+        if (before != null) {
+            plugin.getApiProvider().getEventFactory().handleNodeRemove(node, this, before, getSnapshot(false));
+        }
         return DataMutateResult.SUCCESS;
     }
 
@@ -1022,20 +1168,16 @@ public abstract class PermissionHolder {
      * @param node the node to unset
      */
     public DataMutateResult unsetPermissionExact(Node node) {
-        ImmutableSet<Node> before = ImmutableSet.copyOf(getNodes().values());
-
-        synchronized (nodes) {
-            nodes.get(node.getFullContexts().makeImmutable()).removeIf(e -> e.equals(node));
-        }
-        invalidateCache();
-
-        ImmutableSet<Node> after = ImmutableSet.copyOf(getNodes().values());
+        ImmutableSet<Node> before = getEventSnapshot(NodeRemoveEvent.class, false);
 
-        if (before.size() == after.size()) {
+        if (!mutateNodes(nodes, map -> map.get(node.getFullContexts().makeImmutable()).removeIf(e -> e.equals(node)))) {
             return DataMutateResult.LACKS;
         }
 
-        plugin.getApiProvider().getEventFactory().handleNodeRemove(node, this, before, after);
+        invalidateCache();
+        if (before != null) {
+            plugin.getApiProvider().getEventFactory().handleNodeRemove(node, this, before, getSnapshot(false));
+        }
         return DataMutateResult.SUCCESS;
     }
 
@@ -1049,15 +1191,14 @@ public abstract class PermissionHolder {
             return DataMutateResult.LACKS;
         }
 
-        ImmutableSet<Node> before = ImmutableSet.copyOf(getTransientNodes().values());
+        ImmutableSet<Node> before = getEventSnapshot(NodeRemoveEvent.class, true);
 
-        synchronized (transientNodes) {
-            transientNodes.get(node.getFullContexts().makeImmutable()).removeIf(e -> e.almostEquals(node));
-        }
+        mutateNodes(transientNodes, map -> map.get(node.getFullContexts().makeImmutable()).removeIf(e -> e.almostEquals(node)));
         invalidateCache();
 
-        ImmutableSet<Node> after = ImmutableSet.copyOf(getTransientNodes().values());
-        plugin.getApiProvider().getEventFactory().handleNodeRemove(node, this, before, after);
+        if (before != null) {
+            plugin.getApiProvider().getEventFactory().handleNodeRemove(node, this, before, getSnapshot(true));
+        }
         return DataMutateResult.SUCCESS;
     }
 
@@ -1085,156 +1226,117 @@ public abstract class PermissionHolder {
      * Clear all of the holders permission nodes
      */
     public boolean clearNodes() {
-        ImmutableSet<Node> before = ImmutableSet.copyOf(getNodes().values());
-        synchronized (nodes) {
-            nodes.clear();
+        ImmutableSet<Node> before = getEventSnapshot(NodeClearEvent.class, false);
+        if (nodes.getAndSet(ImmutableSetMultimap.of()).isEmpty()) {
+            return false;
         }
         invalidateCache();
-        ImmutableSet<Node> after = ImmutableSet.copyOf(getNodes().values());
-
-        if (before.size() == after.size()) {
-            return false;
+        if (before != null) {
+            plugin.getApiProvider().getEventFactory().handleNodeClear(this, before, getSnapshot(false));
         }
-
-        plugin.getApiProvider().getEventFactory().handleNodeClear(this, before, after);
         return true;
     }
 
     public boolean clearNodes(ContextSet contextSet) {
-        ImmutableSet<Node> before = ImmutableSet.copyOf(getNodes().values());
-        synchronized (nodes) {
-            nodes.removeAll(contextSet.makeImmutable());
+        ImmutableSet<Node> before = getEventSnapshot(NodeClearEvent.class, false);
+        if (!mutateNodes(nodes, map -> !map.removeAll(contextSet.makeImmutable()).isEmpty())) {
+            return false;
         }
         invalidateCache();
-        ImmutableSet<Node> after = ImmutableSet.copyOf(getNodes().values());
-
-        if (before.size() == after.size()) {
-            return false;
+        if (before != null) {
+            plugin.getApiProvider().getEventFactory().handleNodeClear(this, before, getSnapshot(false));
         }
-
-        plugin.getApiProvider().getEventFactory().handleNodeClear(this, before, after);
         return true;
     }
 
     public boolean clearParents(boolean giveDefault) {
-        ImmutableSet<Node> before = ImmutableSet.copyOf(getNodes().values());
-        synchronized (nodes) {
-            boolean b = nodes.values().removeIf(Node::isGroupNode);
-            if (!b) {
-                return false;
-            }
+        ImmutableSet<Node> before = getEventSnapshot(NodeClearEvent.class, false);
+        if (!mutateNodes(nodes, map -> map.values().removeIf(Node::isGroupNode))) {
+            return false;
         }
         if (this instanceof User && giveDefault) {
             plugin.getUserManager().giveDefaultIfNeeded((User) this, false);
         }
         invalidateCache();
-        ImmutableSet<Node> after = ImmutableSet.copyOf(getNodes().values());
-        plugin.getApiProvider().getEventFactory().handleNodeClear(this, before, after);
+        if (before != null) {
+            plugin.getApiProvider().getEventFactory().handleNodeClear(this, before, getSnapshot(false));
+        }
         return true;
     }
 
     public boolean clearParents(ContextSet contextSet, boolean giveDefault) {
-        ImmutableSet<Node> before = ImmutableSet.copyOf(getNodes().values());
-        synchronized (nodes) {
-            SortedSet<Node> nodes = this.nodes.get(contextSet.makeImmutable());
-            if (nodes == null) {
-                return false;
-            }
-
-            boolean b = nodes.removeIf(Node::isGroupNode);
-            if (!b) {
-                return false;
-            }
+        ImmutableSet<Node> before = getEventSnapshot(NodeClearEvent.class, false);
+        if (!mutateNodes(nodes, map -> map.get(contextSet.makeImmutable()).removeIf(Node::isGroupNode))) {
+            return false;
         }
         if (this instanceof User && giveDefault) {
             plugin.getUserManager().giveDefaultIfNeeded((User) this, false);
         }
         invalidateCache();
-        ImmutableSet<Node> after = ImmutableSet.copyOf(getNodes().values());
-        plugin.getApiProvider().getEventFactory().handleNodeClear(this, before, after);
+        if (before != null) {
+            plugin.getApiProvider().getEventFactory().handleNodeClear(this, before, getSnapshot(false));
+        }
         return true;
     }
 
     public boolean clearMeta() {
-        ImmutableSet<Node> before = ImmutableSet.copyOf(getNodes().values());
+        ImmutableSet<Node> before = getEventSnapshot(NodeClearEvent.class, false);
 
-        synchronized (nodes) {
-            if (!nodes.values().removeIf(n -> n.isMeta() || n.isPrefix() || n.isSuffix())) {
-                return false;
-            }
+        if (!mutateNodes(nodes, map -> map.values().removeIf(n -> n.isMeta() || n.isPrefix() || n.isSuffix()))) {
+            return false;
         }
         invalidateCache();
-        ImmutableSet<Node> after = ImmutableSet.copyOf(getNodes().values());
-        plugin.getApiProvider().getEventFactory().handleNodeClear(this, before, after);
+        if (before != null) {
+            plugin.getApiProvider().getEventFactory().handleNodeClear(this, before, getSnapshot(false));
+        }
         return true;
     }
 
     public boolean clearMeta(ContextSet contextSet) {
-        ImmutableSet<Node> before = ImmutableSet.copyOf(getNodes().values());
-        synchronized (nodes) {
-            SortedSet<Node> nodes = this.nodes.get(contextSet.makeImmutable());
-            if (nodes == null) {
-                return false;
-            }
-
-            boolean b = nodes.removeIf(n -> n.isMeta() || n.isPrefix() || n.isSuffix());
-            if (!b) {
-                return false;
-            }
+        ImmutableSet<Node> before = getEventSnapshot(NodeClearEvent.class, false);
+        if (!mutateNodes(nodes, map -> map.get(contextSet.makeImmutable()).removeIf(n -> n.isMeta() || n.isPrefix() || n.isSuffix()))) {
+            return false;
         }
         invalidateCache();
-        ImmutableSet<Node> after = ImmutableSet.copyOf(getNodes().values());
-        plugin.getApiProvider().getEventFactory().handleNodeClear(this, before, after);
+        if (before != null) {
+            plugin.getApiProvider().getEventFactory().handleNodeClear(this, before, getSnapshot(false));
+        }
         return true;
     }
 
     public boolean clearMetaKeys(String key, boolean temp) {
-        ImmutableSet<Node> before = ImmutableSet.copyOf(getNodes().values());
-        synchronized (nodes) {
-            boolean b = this.nodes.values().removeIf(n -> n.isMeta() && (n.isTemporary() == temp) && n.getMeta().getKey().equalsIgnoreCase(key));
-            if (!b) {
-                return false;
-            }
+        ImmutableSet<Node> before = getEventSnapshot(NodeClearEvent.class, false);
+        if (!mutateNodes(nodes, map -> map.values().removeIf(n -> n.isMeta() && (n.isTemporary() == temp) && n.getMeta().getKey().equalsIgnoreCase(key)))) {
+            return false;
         }
         invalidateCache();
-        ImmutableSet<Node> after = ImmutableSet.copyOf(getNodes().values());
-        plugin.getApiProvider().getEventFactory().handleNodeClear(this, before, after);
+        if (before != null) {
+            plugin.getApiProvider().getEventFactory().handleNodeClear(this, before, getSnapshot(false));
+        }
         return true;
     }
 
     public boolean clearMetaKeys(String key, ContextSet contextSet, boolean temp) {
-        ImmutableSet<Node> before = ImmutableSet.copyOf(getNodes().values());
-        synchronized (nodes) {
-
-            SortedSet<Node> nodes = this.nodes.get(contextSet.makeImmutable());
-            if (nodes == null) {
-                return false;
-            }
-
-            boolean b = nodes.removeIf(n -> n.isMeta() && (n.isTemporary() == temp) && n.getMeta().getKey().equalsIgnoreCase(key));
-            if (!b) {
-                return false;
-            }
+        ImmutableSet<Node> before = getEventSnapshot(NodeClearEvent.class, false);
+        if (!mutateNodes(nodes, map -> map.get(contextSet.makeImmutable()).removeIf(n -> n.isMeta() && (n.isTemporary() == temp) && n.getMeta().getKey().equalsIgnoreCase(key)))) {
+            return false;
         }
         invalidateCache();
-        ImmutableSet<Node> after = ImmutableSet.copyOf(getNodes().values());
-        plugin.getApiProvider().getEventFactory().handleNodeClear(this, before, after);
+        if (before != null) {
+            plugin.getApiProvider().getEventFactory().handleNodeClear(this, before, getSnapshot(false));
+        }
         return true;
     }
 
     public boolean clearTransientNodes() {
-        ImmutableSet<Node> before = ImmutableSet.copyOf(getTransientNodes().values());
-        synchronized (transientNodes) {
-            transientNodes.clear();
+        ImmutableSet<Node> before = getEventSnapshot(NodeClearEvent.class, true);
+        if (transientNodes.getAndSet(ImmutableSetMultimap.of()).isEmpty()) {
+            return false;
         }
         invalidateCache();
-        ImmutableSet<Node> after = ImmutableSet.copyOf(getTransientNodes().values());
-
-        if (before.size() == after.size()) {
-            return false;
+        if (before != null) {
+            plugin.getApiProvider().getEventFactory().handleNodeClear(this, before, getSnapshot(true));
         }
-
-        plugin.getApiProvider().getEventFactory().handleNodeClear(this, before, after);
         return true;
     }
 
@@ -1265,6 +1367,22 @@ public abstract class PermissionHolder {
     }
 
     public OptionalInt getWeight() {
+        OptionalInt weight = this.weight;
+        if (weight != null) {
+            return weight;
+        }
+
+        synchronized (weightLock) {
+            weight = this.weight;
+            if (weight == null) {
+                weight = calculateWeight();
+                this.weight = weight;
+            }
+            return weight;
+        }
+    }
+
+    private OptionalInt calculateWeight() {
         if (this instanceof User) return OptionalInt.empty();
 
         OptionalInt weight = OptionalInt.empty();
@@ -1286,7 +1404,48 @@ public abstract class PermissionHolder {
         return weight;
     }
 
-    public Set<HolderReference> getGroupReferences() {
+    /**
+     * Gets the group nodes held by this holder, sorted by the weight of the group they refer to (highest first).
+     *
+     * <p>Nodes referring to groups with the same weight retain the order they are held in.</p>
+     *
+     * @return the sorted group nodes
+     */
+    public List<Node> getSortedParents() {
+        List<Node> parents = this.sortedParents;
+        if (parents != null) {
+            return parents;
+        }
+
+        int version;
+        synchronized (weightLock) {
+            version = sortedParentsVersion;
+        }
+
+        // calculated outside of the lock, as we need to obtain the weights of other groups
+        parents = calculateSortedParents();
+
+        synchronized (weightLock) {
+            // only cache the result if nothing changed whilst it was being calculated
+            if (sortedParentsVersion == version) {
+                this.sortedParents = parents;
+            }
+        }
+        return parents;
+    }
+
+    private List<Node> calculateSortedParents() {
+        Map<String, Integer> weights = new HashMap<>();
+        return mergePermissionsToList().stream()
+                .filter(Node::isGroupNode)
+                .sorted(Collections.reverseOrder(Comparator.comparingInt(n -> weights.computeIfAbsent(n.getGroupName().toLowerCase(), name -> {
+                    Group group = plugin.getGroupManager().getIfLoaded(name);
+                    return group == null ? 0 : group.getWeight().orElse(0);
+                }))))
+                .collect(ImmutableCollectors.toImmutableList());
+    }
+
+    public Set<HolderReference<?>> getGroupReferences() {
         return mergePermissionsToList().stream()
                 .filter(Node::isGroupNode)
                 .map(Node::getGroupName)
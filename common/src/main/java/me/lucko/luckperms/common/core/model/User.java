@@ -172,6 +172,12 @@ public class User extends PermissionHolder implements Identifiable<UserIdentifie
         userData.clear();
     }
 
+    @Override
+    public void invalidateInheritanceCaches() {
+        super.invalidateInheritanceCaches();
+        refreshBuffer.request();
+    }
+
     /**
      * Refresh and re-assign the users permissions
      * Blocking call.
@@ -80,12 +80,26 @@ public final class EventFactory {
         eventBus.fireEventAsync(event);
     }
 
+    /**
+     * Gets if any handlers are listening for the given event type.
+     *
+     * @param eventClass the event class
+     * @return true if the event should be posted
+     * @see LuckPermsEventBus#shouldPost(Class)
+     */
+    public boolean shouldPost(Class<? extends LuckPermsEvent> eventClass) {
+        return eventBus.shouldPost(eventClass);
+    }
+
     public void handleGroupCreate(Group group, CreationCause cause) {
         EventGroupCreate event = new EventGroupCreate(group.getDelegate(), cause);
         fireEvent(event);
     }
 
     public void handleGroupDelete(Group group, DeletionCause cause) {
+        if (!shouldPost(EventGroupDelete.class)) {
+            return;
+        }
         EventGroupDelete event = new EventGroupDelete(group.getName(), ImmutableSet.copyOf(group.getNodes().values()), cause);
         fireEvent(event);
     }
@@ -115,16 +129,25 @@ public final class EventFactory {
     }
 
     public void handleNodeAdd(Node node, PermissionHolder target, Set<Node> before, Set<Node> after) {
+        if (!shouldPost(EventNodeAdd.class)) {
+            return;
+        }
         EventNodeAdd event = new EventNodeAdd(node, target.getDelegate(), ImmutableSet.copyOf(before), ImmutableSet.copyOf(after));
         fireEvent(event);
     }
 
     public void handleNodeClear(PermissionHolder target, Set<Node> before, Set<Node> after) {
+        if (!shouldPost(EventNodeClear.class)) {
+            return;
+        }
         EventNodeClear event = new EventNodeClear(target.getDelegate(), ImmutableSet.copyOf(before), ImmutableSet.copyOf(after));
         fireEvent(event);
     }
 
     public void handleNodeRemove(Node node, PermissionHolder target, Set<Node> before, Set<Node> after) {
+        if (!shouldPost(EventNodeRemove.class)) {
+            return;
+        }
         EventNodeRemove event = new EventNodeRemove(node, target.getDelegate(), ImmutableSet.copyOf(before), ImmutableSet.copyOf(after));
         fireEvent(event);
     }
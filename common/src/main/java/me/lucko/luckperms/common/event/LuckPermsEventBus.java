@@ -37,9 +37,14 @@ import me.lucko.luckperms.api.event.EventHandler;
 import me.lucko.luckperms.api.event.LuckPermsEvent;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 @RequiredArgsConstructor
@@ -49,6 +54,16 @@ public class LuckPermsEventBus implements EventBus {
     private final LuckPermsPlugin plugin;
     private final Map<Class<? extends LuckPermsEvent>, Set<LuckPermsEventHandler<?>>> handlerMap = new ConcurrentHashMap<>();
 
+    // a flattened array of the handlers which should receive each event class, including those subscribed to the
+    // events super types. tables are built lazily.
+    // the whole map is replaced (rather than cleared) whenever a handler is added or removed, so a table being built
+    // from the old handlers by another thread can only ever be stored in a map which has already been discarded.
+    private volatile Map<Class<? extends LuckPermsEvent>, LuckPermsEventHandler<?>[]> dispatchCache = new ConcurrentHashMap<>();
+
+    // events waiting to be dispatched asynchronously, and whether a task is currently draining them
+    private final Queue<LuckPermsEvent> asyncQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean asyncDraining = new AtomicBoolean(false);
+
     @Override
     public <T extends LuckPermsEvent> EventHandler<T> subscribe(@NonNull Class<T> eventClass, @NonNull Consumer<T> handler) {
         if (!eventClass.isInterface()) {
@@ -62,6 +77,7 @@ public class LuckPermsEventBus implements EventBus {
 
         LuckPermsEventHandler<T> eventHandler = new LuckPermsEventHandler<>(this, eventClass, handler);
         handlers.add(eventHandler);
+        invalidateDispatchCache();
 
         return eventHandler;
     }
@@ -86,7 +102,39 @@ public class LuckPermsEventBus implements EventBus {
         Set<LuckPermsEventHandler<?>> handlers = handlerMap.get(handler.getEventClass());
         if (handlers != null) {
             handlers.remove(handler);
+            invalidateDispatchCache();
+        }
+    }
+
+    private void invalidateDispatchCache() {
+        dispatchCache = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Gets if any handlers are subscribed to the given event class, or one of its super types.
+     *
+     * <p>Callers can use this to avoid constructing an event (and the data it carries) when nothing
+     * is listening.</p>
+     *
+     * @param eventClass the event class
+     * @return true if the event would be received by at least one handler
+     */
+    public boolean shouldPost(Class<? extends LuckPermsEvent> eventClass) {
+        return getDispatchTable(eventClass).length != 0;
+    }
+
+    private LuckPermsEventHandler<?>[] getDispatchTable(Class<? extends LuckPermsEvent> eventClass) {
+        return dispatchCache.computeIfAbsent(eventClass, this::calculateDispatchTable);
+    }
+
+    private LuckPermsEventHandler<?>[] calculateDispatchTable(Class<? extends LuckPermsEvent> eventClass) {
+        List<LuckPermsEventHandler<?>> handlers = new ArrayList<>();
+        for (Map.Entry<Class<? extends LuckPermsEvent>, Set<LuckPermsEventHandler<?>>> ent : handlerMap.entrySet()) {
+            if (ent.getKey().isAssignableFrom(eventClass)) {
+                handlers.addAll(ent.getValue());
+            }
         }
+        return handlers.toArray(new LuckPermsEventHandler<?>[handlers.size()]);
     }
 
     public void fireEvent(LuckPermsEvent event) {
@@ -94,12 +142,8 @@ public class LuckPermsEventBus implements EventBus {
             ((AbstractEvent) event).setApi(plugin.getApiProvider());
         }
 
-        for (Map.Entry<Class<? extends LuckPermsEvent>, Set<LuckPermsEventHandler<?>>> ent : handlerMap.entrySet()) {
-            if (!ent.getKey().isAssignableFrom(event.getClass())) {
-                continue;
-            }
-
-            ent.getValue().forEach(h -> h.handle(event));
+        for (LuckPermsEventHandler<?> handler : getDispatchTable(event.getClass())) {
+            handler.handle(event);
         }
     }
 
@@ -107,6 +151,34 @@ public class LuckPermsEventBus implements EventBus {
         if (event instanceof Cancellable) {
             throw new IllegalArgumentException("cannot call Cancellable event async");
         }
-        plugin.doAsync(() -> fireEvent(event));
+        if (!shouldPost(event.getClass())) {
+            return;
+        }
+
+        asyncQueue.add(event);
+        scheduleAsyncDrain();
+    }
+
+    private void scheduleAsyncDrain() {
+        // only one drain task runs at a time, so events are posted in the order they were fired
+        if (asyncDraining.compareAndSet(false, true)) {
+            plugin.doAsync(this::drainAsyncQueue);
+        }
+    }
+
+    private void drainAsyncQueue() {
+        try {
+            LuckPermsEvent event;
+            while ((event = asyncQueue.poll()) != null) {
+                fireEvent(event);
+            }
+        } finally {
+            asyncDraining.set(false);
+        }
+
+        // an event may have been queued after we stopped polling, but before the flag was reset
+        if (!asyncQueue.isEmpty()) {
+            scheduleAsyncDrain();
+        }
     }
 }
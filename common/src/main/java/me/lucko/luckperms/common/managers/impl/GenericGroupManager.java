@@ -41,4 +41,15 @@ public class GenericGroupManager extends AbstractManager<String, Group> implemen
         return new Group(name, plugin);
     }
 
+    @Override
+    public void unload(String id) {
+        Group group = getIfLoaded(id);
+        super.unload(id);
+
+        // holders inheriting from the unloaded group may have it cached
+        if (group != null) {
+            plugin.getCachedStateManager().invalidateInheritances(group.toReference());
+        }
+    }
+
 }
\ No newline at end of file
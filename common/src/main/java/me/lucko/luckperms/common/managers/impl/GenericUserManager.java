@@ -28,6 +28,7 @@ package me.lucko.luckperms.common.managers.impl;
 import lombok.RequiredArgsConstructor;
 
 import me.lucko.luckperms.api.Node;
+import me.lucko.luckperms.common.caching.handlers.UserReference;
 import me.lucko.luckperms.common.core.NodeFactory;
 import me.lucko.luckperms.common.core.UserIdentifier;
 import me.lucko.luckperms.common.core.model.User;
@@ -38,6 +39,7 @@ import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 public class GenericUserManager extends AbstractManager<UserIdentifier, User> implements UserManager {
@@ -132,6 +134,16 @@ public class GenericUserManager extends AbstractManager<UserIdentifier, User> im
         return giveDefaultIfNeeded(user, save, plugin);
     }
 
+    @Override
+    public void unload(UserIdentifier id) {
+        super.unload(id);
+
+        // the user no longer needs to be invalidated when the groups they inherit from change
+        if (id != null) {
+            plugin.getCachedStateManager().clear(UserReference.of(id));
+        }
+    }
+
     @Override
     public void cleanup(User user) {
         if (!plugin.isPlayerOnline(plugin.getUuidCache().getExternalUUID(user.getUuid()))) {
@@ -163,10 +175,8 @@ public class GenericUserManager extends AbstractManager<UserIdentifier, User> im
         plugin.doSync(() -> {
             Set<UUID> players = plugin.getOnlinePlayers();
             plugin.doAsync(() -> {
-                for (UUID uuid : players) {
-                    UUID internal = plugin.getUuidCache().getUUID(uuid);
-                    plugin.getStorage().loadUser(internal, "null").join();
-                }
+                Set<UUID> internal = players.stream().map(uuid -> plugin.getUuidCache().getUUID(uuid)).collect(Collectors.toSet());
+                plugin.getStorage().loadUsers(internal).join();
             });
         });
     }
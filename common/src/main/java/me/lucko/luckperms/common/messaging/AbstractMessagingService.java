@@ -28,29 +28,63 @@ package me.lucko.luckperms.common.messaging;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.utils.BufferedRequest;
 
-import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * An abstract implementation of {@link me.lucko.luckperms.api.MessagingService}.
+ *
+ * <p>Update messages take the form {@code update:<id>}, optionally followed by {@code :<targets>}, where targets is
+ * a comma separated list of serialized {@link UpdateTarget}s. Messages without any targets request a full sync.</p>
  */
 @RequiredArgsConstructor
 public abstract class AbstractMessagingService implements InternalMessagingService {
     public static final String CHANNEL = "lpuc";
 
+    private static final String UPDATE_PREFIX = "update:";
+
+    /**
+     * The maximum number of targets to include in a single message. Past this point, it's cheaper to just
+     * ask other servers to run a full sync.
+     */
+    private static final int MAX_TARGETS = 50;
+
     @Getter
     private final LuckPermsPlugin plugin;
 
     @Getter
     private final String name;
 
-    private final Set<UUID> receivedMsgs = Collections.synchronizedSet(new HashSet<>());
+    /**
+     * The ids of the messages which have already been received, mapped to whether they were acted upon.
+     * Duplicates only ever arrive shortly after the original, so the entries can safely expire.
+     */
+    private final Cache<UUID, Boolean> receivedIds = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * The raw messages which have already been received, used to prevent forwarded messages from looping.
+     */
+    private final Cache<String, Boolean> receivedMessages = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .build();
+
+    private final Set<UpdateTarget> pendingTargets = ConcurrentHashMap.newKeySet();
 
     @Getter
     private final BufferedRequest<Void> updateBuffer = new BufferedRequest<Void>(10000L, r -> getPlugin().doAsync(r)) {
@@ -61,32 +95,73 @@ public abstract class AbstractMessagingService implements InternalMessagingServi
         }
     };
 
+    private final BufferedRequest<Void> targetedUpdateBuffer = new BufferedRequest<Void>(10000L, r -> getPlugin().doAsync(r)) {
+        @Override
+        protected Void perform() {
+            pushPendingTargets();
+            return null;
+        }
+    };
+
     protected abstract void sendMessage(String channel, String message);
 
-    protected void onMessage(String channel, String msg, Consumer<UUID> callback) {
+    protected void onMessage(String channel, String msg, Consumer<String> callback) {
         if (!channel.equals(CHANNEL)) {
             return;
         }
 
-        UUID uuid = parseUpdateMessage(msg);
-        if (uuid == null) {
+        if (!msg.startsWith(UPDATE_PREFIX)) {
             return;
         }
 
-        if (!receivedMsgs.add(uuid)) {
+        String content = msg.substring(UPDATE_PREFIX.length());
+        int targetsIndex = content.indexOf(':');
+
+        UUID id = parseId(targetsIndex == -1 ? content : content.substring(0, targetsIndex));
+        if (id == null) {
             return;
         }
 
-        plugin.getLog().info("[" + name + " Messaging] Received update ping with id: " + uuid.toString());
+        // null targets means a full sync was requested
+        Set<UpdateTarget> targets = null;
+        if (targetsIndex != -1) {
+            targets = parseTargets(content.substring(targetsIndex + 1));
+            if (targets == null) {
+                return;
+            }
+        }
 
-        if (plugin.getApiProvider().getEventFactory().handleNetworkPreSync(false, uuid)) {
+        if (receivedMessages.asMap().putIfAbsent(msg, Boolean.TRUE) != null) {
             return;
         }
 
-        plugin.getUpdateTaskBuffer().request();
+        // the same update can arrive more than once under the same id, in different forms.
+        // only act upon the first, but still pass the others on to the callback.
+        Boolean accepted = receivedIds.asMap().putIfAbsent(id, Boolean.TRUE);
+        if (accepted == null) {
+            if (targets == null) {
+                plugin.getLog().info("[" + name + " Messaging] Received update ping with id: " + id.toString());
+            } else {
+                plugin.getLog().info("[" + name + " Messaging] Received update ping with id: " + id.toString() + " (" + targets.size() + " targets)");
+            }
+
+            if (plugin.getApiProvider().getEventFactory().handleNetworkPreSync(false, id)) {
+                receivedIds.put(id, Boolean.FALSE);
+                return;
+            }
+
+            if (targets == null) {
+                plugin.getUpdateTaskBuffer().request();
+            } else {
+                Set<UpdateTarget> t = targets;
+                plugin.doAsync(() -> applyTargets(t));
+            }
+        } else if (!accepted) {
+            return;
+        }
 
         if (callback != null) {
-            callback.accept(uuid);
+            callback.accept(msg);
         }
     }
 
@@ -96,27 +171,118 @@ public abstract class AbstractMessagingService implements InternalMessagingServi
             UUID id = generateId();
             plugin.getLog().info("[" + name + " Messaging] Sending ping with id: " + id.toString());
 
-            sendMessage(CHANNEL, "update:" + id.toString());
+            sendMessage(CHANNEL, UPDATE_PREFIX + id.toString());
         });
     }
 
+    @Override
+    public void requestUpdate(UpdateTarget target) {
+        pendingTargets.add(target);
+        targetedUpdateBuffer.request();
+    }
+
+    private void pushPendingTargets() {
+        Set<UpdateTarget> targets = new HashSet<>();
+        for (Iterator<UpdateTarget> it = pendingTargets.iterator(); it.hasNext(); ) {
+            targets.add(it.next());
+            it.remove();
+        }
+
+        if (targets.isEmpty()) {
+            return;
+        }
+
+        if (targets.size() > MAX_TARGETS) {
+            pushUpdate();
+            return;
+        }
+
+        UUID id = generateId();
+        plugin.getLog().info("[" + name + " Messaging] Sending ping with id: " + id.toString() + " (" + targets.size() + " targets)");
+
+        String serializedTargets = targets.stream().map(UpdateTarget::serialize).collect(Collectors.joining(","));
+        sendMessage(CHANNEL, UPDATE_PREFIX + id.toString() + ":" + serializedTargets);
+
+        // servers running older versions will ignore the targeted message, so follow it up with a plain one.
+        // it shares the same id, so is discarded by servers which have already handled the targeted version.
+        sendMessage(CHANNEL, UPDATE_PREFIX + id.toString());
+    }
+
+    /**
+     * Reloads the objects described by the given targets. Called ASYNC
+     *
+     * @param targets the targets to reload
+     */
+    private void applyTargets(Set<UpdateTarget> targets) {
+        if (plugin.getApiProvider().getEventFactory().handlePreSync(false)) {
+            return;
+        }
+
+        // if a group or track couldn't be loaded, it has most likely been deleted. fallback to a full sync
+        // to make sure it gets unloaded here too.
+        boolean fullSync = false;
+
+        Set<UUID> users = new HashSet<>();
+        for (UpdateTarget target : targets) {
+            switch (target.getType()) {
+                case USER:
+                    UUID uuid = UUID.fromString(target.getId());
+                    if (plugin.getUserManager().getIfLoaded(uuid) != null) {
+                        users.add(uuid);
+                    }
+                    break;
+                case GROUP:
+                    if (!plugin.getStorage().loadGroup(target.getId()).join()) {
+                        fullSync = true;
+                    }
+                    break;
+                case TRACK:
+                    if (!plugin.getStorage().loadTrack(target.getId()).join()) {
+                        fullSync = true;
+                    }
+                    break;
+            }
+        }
+
+        // holders inheriting from any of the reloaded groups are invalidated by the groups themselves, so
+        // only the targeted users need to be refreshed.
+        if (!users.isEmpty()) {
+            plugin.getStorage().loadUsers(users).join();
+        }
+
+        plugin.onPostUpdate();
+
+        plugin.getApiProvider().getEventFactory().handlePostSync();
+
+        if (fullSync) {
+            plugin.getUpdateTaskBuffer().request();
+        }
+    }
+
     private UUID generateId() {
         UUID uuid = UUID.randomUUID();
-        receivedMsgs.add(uuid);
+        receivedIds.put(uuid, Boolean.TRUE);
         return uuid;
     }
 
-    private static UUID parseUpdateMessage(String msg) {
-        if (!msg.startsWith("update:")) {
-            return null;
-        }
-
-        String requestId = msg.substring("update:".length());
+    private static UUID parseId(String id) {
         try {
-            return UUID.fromString(requestId);
+            return UUID.fromString(id);
         } catch (IllegalArgumentException e) {
             return null;
         }
     }
 
+    private static Set<UpdateTarget> parseTargets(String s) {
+        Set<UpdateTarget> targets = new HashSet<>();
+        for (String part : s.split(",")) {
+            UpdateTarget target = UpdateTarget.deserialize(part);
+            if (target == null) {
+                return null;
+            }
+            targets.add(target);
+        }
+        return targets.isEmpty() ? null : targets;
+    }
+
 }
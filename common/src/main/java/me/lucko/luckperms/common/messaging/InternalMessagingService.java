@@ -49,4 +49,12 @@ public interface InternalMessagingService extends MessagingService {
      */
     BufferedRequest<Void> getUpdateBuffer();
 
+    /**
+     * Requests that other servers reload the given target. Targets are collected, and sent together after a
+     * short delay.
+     *
+     * @param target the object which changed
+     */
+    void requestUpdate(UpdateTarget target);
+
 }
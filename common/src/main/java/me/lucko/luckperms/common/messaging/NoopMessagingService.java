@@ -44,6 +44,11 @@ public class NoopMessagingService implements InternalMessagingService {
         return null;
     }
 
+    @Override
+    public void requestUpdate(UpdateTarget target) {
+
+    }
+
     @Override
     public void pushUpdate() {
 
@@ -0,0 +1,139 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.messaging;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.UUID;
+
+/**
+ * Describes a single object which has changed in storage, and should be reloaded by other servers.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class UpdateTarget {
+    private static final String SEPARATOR = "=";
+
+    public static UpdateTarget user(UUID uuid) {
+        return new UpdateTarget(Type.USER, uuid.toString());
+    }
+
+    public static UpdateTarget group(String name) {
+        return new UpdateTarget(Type.GROUP, name);
+    }
+
+    public static UpdateTarget track(String name) {
+        return new UpdateTarget(Type.TRACK, name);
+    }
+
+    /**
+     * Parses a target from the format produced by {@link #serialize()}.
+     *
+     * @param s the serialized target
+     * @return the target, or null if the string could not be parsed
+     */
+    public static UpdateTarget deserialize(String s) {
+        int i = s.indexOf(SEPARATOR);
+        if (i == -1) {
+            return null;
+        }
+
+        Type type = Type.parse(s.substring(0, i));
+        if (type == null) {
+            return null;
+        }
+
+        String id;
+        try {
+            id = URLDecoder.decode(s.substring(i + 1), "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return null;
+        }
+
+        if (id.isEmpty()) {
+            return null;
+        }
+
+        if (type == Type.USER) {
+            try {
+                id = UUID.fromString(id).toString();
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        return new UpdateTarget(type, id);
+    }
+
+    private final Type type;
+
+    /**
+     * The uuid of the user, or the name of the group or track
+     */
+    private final String id;
+
+    /**
+     * Serializes this target into a string which is safe to include in a comma separated list.
+     *
+     * @return the serialized target
+     */
+    public String serialize() {
+        try {
+            return type.getKey() + SEPARATOR + URLEncoder.encode(id, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public enum Type {
+        USER("u"),
+        GROUP("g"),
+        TRACK("t");
+
+        private final String key;
+
+        public static Type parse(String key) {
+            for (Type type : values()) {
+                if (type.getKey().equals(key)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+}
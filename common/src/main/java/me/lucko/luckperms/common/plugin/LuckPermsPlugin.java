@@ -29,6 +29,7 @@ import me.lucko.luckperms.api.Contexts;
 import me.lucko.luckperms.api.Logger;
 import me.lucko.luckperms.api.PlatformType;
 import me.lucko.luckperms.common.api.ApiProvider;
+import me.lucko.luckperms.common.caching.ProfileCache;
 import me.lucko.luckperms.common.caching.handlers.CachedStateManager;
 import me.lucko.luckperms.common.calculators.CalculatorFactory;
 import me.lucko.luckperms.common.commands.CommandManager;
@@ -159,6 +160,13 @@ public interface LuckPermsPlugin {
      */
     CachedStateManager getCachedStateManager();
 
+    /**
+     * Gets the cache of data shared between users with identical nodes.
+     *
+     * @return the profile cache
+     */
+    ProfileCache getProfileCache();
+
     /**
      * Gets the class responsible for constructing PermissionCalculators on this platform.
      *
@@ -378,6 +386,13 @@ public interface LuckPermsPlugin {
 
     }
 
+    /**
+     * Called after the caches of the holders inheriting from a changed group have been invalidated.
+     */
+    default void onInheritancesInvalidated() {
+
+    }
+
     /**
      * Called when a users data is refreshed
      *
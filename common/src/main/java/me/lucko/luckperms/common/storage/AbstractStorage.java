@@ -45,6 +45,7 @@ import me.lucko.luckperms.common.storage.backing.AbstractBacking;
 import me.lucko.luckperms.common.storage.wrappings.BufferedOutputStorage;
 import me.lucko.luckperms.common.storage.wrappings.TolerantStorage;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -114,6 +115,20 @@ public class AbstractStorage implements Storage {
         });
     }
 
+    @Override
+    public CompletableFuture<Boolean> loadUsers(Collection<UUID> uuids) {
+        return makeFuture(() -> {
+            boolean success = backing.loadUsers(uuids);
+            for (UUID uuid : uuids) {
+                User u = plugin.getUserManager().getIfLoaded(uuid);
+                if (u != null) {
+                    plugin.getApiProvider().getEventFactory().handleUserLoad(u);
+                }
+            }
+            return success;
+        });
+    }
+
     @Override
     public CompletableFuture<Boolean> saveUser(User user) {
         return makeFuture(() -> backing.saveUser(user));
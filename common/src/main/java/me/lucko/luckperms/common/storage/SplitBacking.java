@@ -37,6 +37,7 @@ import me.lucko.luckperms.common.data.Log;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.backing.AbstractBacking;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -99,6 +100,11 @@ public class SplitBacking extends AbstractBacking {
         return backing.get(types.get("user")).loadUser(uuid, username);
     }
 
+    @Override
+    public boolean loadUsers(Collection<UUID> uuids) {
+        return backing.get(types.get("user")).loadUsers(uuids);
+    }
+
     @Override
     public boolean saveUser(User user) {
         return backing.get(types.get("user")).saveUser(user);
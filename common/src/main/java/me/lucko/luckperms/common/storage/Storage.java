@@ -36,6 +36,7 @@ import me.lucko.luckperms.common.core.model.Track;
 import me.lucko.luckperms.common.core.model.User;
 import me.lucko.luckperms.common.data.Log;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -68,6 +69,8 @@ public interface Storage {
 
     CompletableFuture<Boolean> loadUser(UUID uuid, String username);
 
+    CompletableFuture<Boolean> loadUsers(Collection<UUID> uuids);
+
     CompletableFuture<Boolean> saveUser(User user);
 
     CompletableFuture<Boolean> cleanupUsers();
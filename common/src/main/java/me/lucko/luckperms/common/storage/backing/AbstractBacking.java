@@ -34,14 +34,20 @@ import me.lucko.luckperms.api.HeldPermission;
 import me.lucko.luckperms.api.LogEntry;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.core.model.Group;
+import me.lucko.luckperms.common.core.model.PermissionHolder;
 import me.lucko.luckperms.common.core.model.Track;
 import me.lucko.luckperms.common.core.model.User;
 import me.lucko.luckperms.common.data.Log;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @RequiredArgsConstructor(access = AccessLevel.PROTECTED)
 public abstract class AbstractBacking {
@@ -68,6 +74,25 @@ public abstract class AbstractBacking {
 
     public abstract boolean loadUser(UUID uuid, String username);
 
+    /**
+     * Loads (or reloads) the data of a number of users at once.
+     *
+     * <p>Implementations which can read the data of many users in one go should override this, and should only
+     * request a refresh for users whose data actually changed.</p>
+     *
+     * @param uuids the users to load
+     * @return true if all of the users were loaded successfully
+     */
+    public boolean loadUsers(Collection<UUID> uuids) {
+        boolean success = true;
+        for (UUID uuid : uuids) {
+            if (!loadUser(uuid, "null")) {
+                success = false;
+            }
+        }
+        return success;
+    }
+
     public abstract boolean saveUser(User user);
 
     public abstract boolean cleanupUsers();
@@ -98,6 +123,57 @@ public abstract class AbstractBacking {
 
     public abstract boolean deleteTrack(Track track);
 
+    /**
+     * Acquires the io locks of a number of holders, so their data can be read and applied without a save
+     * happening in between.
+     *
+     * <p>The locks are always taken in the same order, so two threads locking overlapping sets of holders
+     * can't deadlock.</p>
+     *
+     * @param holders the holders to lock
+     * @return the locks which were acquired
+     */
+    protected static List<Lock> lockAll(Collection<? extends PermissionHolder> holders) {
+        return lockAll(holders, PermissionHolder::getObjectName, PermissionHolder::getIoLock);
+    }
+
+    /**
+     * Acquires the io locks of a number of objects, in the order of their ids.
+     *
+     * @param objects the objects to lock
+     * @param idFunction the function to get the id of an object
+     * @param lockFunction the function to get the io lock of an object
+     * @param <T> the object type
+     * @return the locks which were acquired
+     */
+    protected static <T> List<Lock> lockAll(Collection<? extends T> objects, Function<T, String> idFunction, Function<T, Lock> lockFunction) {
+        List<Lock> locks = objects.stream()
+                .sorted(Comparator.comparing(idFunction))
+                .map(lockFunction)
+                .collect(Collectors.toList());
+
+        for (int i = 0; i < locks.size(); i++) {
+            try {
+                locks.get(i).lock();
+            } catch (RuntimeException e) {
+                unlockAll(locks.subList(0, i));
+                throw e;
+            }
+        }
+        return locks;
+    }
+
+    /**
+     * Releases the locks acquired by {@link #lockAll(Collection)}.
+     *
+     * @param locks the locks to release
+     */
+    protected static void unlockAll(List<Lock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+
     public abstract boolean saveUUIDData(String username, UUID uuid);
 
     public abstract UUID getUUID(String username);
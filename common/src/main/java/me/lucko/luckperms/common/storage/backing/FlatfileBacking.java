@@ -47,6 +47,7 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -56,6 +57,7 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
 import java.util.logging.FileHandler;
 import java.util.logging.Formatter;
 import java.util.logging.Level;
@@ -66,9 +68,20 @@ import java.util.stream.Collectors;
 public abstract class FlatfileBacking extends AbstractBacking {
     private static final String LOG_FORMAT = "%s(%s): [%s] %s(%s) --> %s";
 
+    /**
+     * Files modified more recently than this aren't trusted to change their modification time on the next write, as
+     * some file systems only record it to the nearest second or two.
+     */
+    private static final long MODIFICATION_TIME_PRECISION_MILLIS = 2000L;
+
     private final Logger actionLogger = Logger.getLogger("luckperms_actions");
     private Map<String, String> uuidCache = new ConcurrentHashMap<>();
 
+    /**
+     * The modification time of each file when it was last loaded by a sync
+     */
+    private final Map<File, Long> syncedModificationTimes = new ConcurrentHashMap<>();
+
     private final File pluginDir;
 
     @Getter
@@ -243,6 +256,46 @@ public abstract class FlatfileBacking extends AbstractBacking {
         return Log.builder().build();
     }
 
+    @Override
+    public boolean loadUsers(Collection<UUID> uuids) {
+        // each user is stored in a separate file, so they can be read in parallel
+        return uuids.parallelStream()
+                .map(uuid -> loadIfModified(
+                        new File(usersDir, uuid.toString() + fileExtension),
+                        plugin.getUserManager().getIfLoaded(uuid) != null,
+                        () -> loadUser(uuid, "null")
+                ))
+                .reduce(true, Boolean::logicalAnd);
+    }
+
+    /**
+     * Runs the loader, unless the object is already loaded and its file hasn't been modified since it was last loaded
+     * by a sync.
+     *
+     * @param file the file the object is stored in
+     * @param loaded if the object is currently loaded
+     * @param loader the function to load the object
+     * @return the result of the loader, or true if it was skipped
+     */
+    private boolean loadIfModified(File file, boolean loaded, BooleanSupplier loader) {
+        long lastModified = file.lastModified();
+        Long synced = syncedModificationTimes.get(file);
+        if (loaded && synced != null && synced == lastModified) {
+            return true;
+        }
+
+        if (!loader.getAsBoolean()) {
+            return false;
+        }
+
+        if (System.currentTimeMillis() - lastModified > MODIFICATION_TIME_PRECISION_MILLIS) {
+            syncedModificationTimes.put(file, lastModified);
+        } else {
+            syncedModificationTimes.remove(file);
+        }
+        return true;
+    }
+
     @Override
     public Set<UUID> getUniqueUsers() {
         String[] fileNames = usersDir.list((dir, name) -> name.endsWith(fileExtension));
@@ -261,9 +314,9 @@ public abstract class FlatfileBacking extends AbstractBacking {
                 .map(s -> s.substring(0, s.length() - fileExtension.length()))
                 .collect(Collectors.toList());
 
-        groups.forEach(this::loadGroup);
-
         GroupManager gm = plugin.getGroupManager();
+        groups.forEach(g -> loadIfModified(new File(groupsDir, g + fileExtension), gm.isLoaded(g), () -> loadGroup(g)));
+
         gm.getAll().values().stream()
                 .filter(g -> !groups.contains(g.getName()))
                 .forEach(gm::unload);
@@ -296,9 +349,9 @@ public abstract class FlatfileBacking extends AbstractBacking {
                 .map(s -> s.substring(0, s.length() - fileExtension.length()))
                 .collect(Collectors.toList());
 
-        tracks.forEach(this::loadTrack);
-
         TrackManager tm = plugin.getTrackManager();
+        tracks.forEach(t -> loadIfModified(new File(tracksDir, t + fileExtension), tm.isLoaded(t), () -> loadTrack(t)));
+
         tm.getAll().values().stream()
                 .filter(t -> !tracks.contains(t.getName()))
                 .forEach(tm::unload);
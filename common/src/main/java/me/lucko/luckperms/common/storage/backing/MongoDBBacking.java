@@ -26,6 +26,8 @@
 package me.lucko.luckperms.common.storage.backing;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Maps;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoCredential;
 import com.mongodb.ServerAddress;
@@ -37,6 +39,7 @@ import com.mongodb.client.model.InsertOneOptions;
 import me.lucko.luckperms.api.HeldPermission;
 import me.lucko.luckperms.api.LogEntry;
 import me.lucko.luckperms.api.Node;
+import me.lucko.luckperms.api.context.ImmutableContextSet;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.core.NodeFactory;
 import me.lucko.luckperms.common.core.NodeModel;
@@ -50,20 +53,25 @@ import me.lucko.luckperms.common.managers.TrackManager;
 import me.lucko.luckperms.common.managers.impl.GenericUserManager;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.DatastoreConfiguration;
+import me.lucko.luckperms.common.storage.backing.utils.RevisionTracker;
 import me.lucko.luckperms.common.storage.holder.NodeHeldPermission;
 
 import org.bson.Document;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Lock;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -96,6 +104,21 @@ public class MongoDBBacking extends AbstractBacking {
                 .collect(Collectors.toMap(e -> REVERT_STRING.apply(e.getKey()), Map.Entry::getValue));
     }
 
+    /*  Every document written gets a new random revision. Servers running older versions replace documents
+        without one when they save, so a document missing its revision is always reloaded by a sync. */
+
+    private static final String REVISION_KEY = "revision";
+    private static final Document REVISION_PROJECTION = new Document("_id", 1).append(REVISION_KEY, 1);
+
+    private static long newRevision() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    private static Long getRevision(Document d) {
+        Object revision = d == null ? null : d.get(REVISION_KEY);
+        return revision instanceof Long ? (Long) revision : null;
+    }
+
     private static Document fromUser(User user) {
         Document main = new Document("_id", user.getUuid())
                 .append("name", user.getName().orElse("null"))
@@ -107,6 +130,7 @@ public class MongoDBBacking extends AbstractBacking {
         }
 
         main.append("perms", perms);
+        main.append(REVISION_KEY, newRevision());
         return main;
     }
 
@@ -119,14 +143,22 @@ public class MongoDBBacking extends AbstractBacking {
         }
 
         main.append("perms", perms);
+        main.append(REVISION_KEY, newRevision());
         return main;
     }
 
     private static Document fromTrack(Track track) {
-        return new Document("_id", track.getName()).append("groups", track.getGroups());
+        return new Document("_id", track.getName()).append("groups", track.getGroups()).append(REVISION_KEY, newRevision());
     }
 
     private final DatastoreConfiguration configuration;
+
+    /*
+     * The revisions each object was last loaded or saved at, so syncs can skip objects which haven't changed
+     */
+    private final RevisionTracker<User> userRevisions = new RevisionTracker<>(u -> Maps.immutableEntry(u.getNodes(), u.getPrimaryGroup().getStoredValue()));
+    private final RevisionTracker<Group> groupRevisions = new RevisionTracker<>(Group::getNodes);
+    private final RevisionTracker<Track> trackRevisions = new RevisionTracker<>(Track::getGroups);
     private MongoClient mongoClient;
     private MongoDatabase database;
 
@@ -262,6 +294,7 @@ public class MongoDBBacking extends AbstractBacking {
                         }
 
                         d.put("perms", perms);
+                        d.put(REVISION_KEY, newRevision());
                         c.replaceOne(new Document("_id", uuid), d);
                     }
                 }
@@ -296,6 +329,7 @@ public class MongoDBBacking extends AbstractBacking {
                         }
 
                         d.put("perms", perms);
+                        d.put(REVISION_KEY, newRevision());
                         c.replaceOne(new Document("_id", holder), d);
                     }
                 }
@@ -314,38 +348,113 @@ public class MongoDBBacking extends AbstractBacking {
                 MongoCollection<Document> c = database.getCollection("users");
 
                 try (MongoCursor<Document> cursor = c.find(new Document("_id", user.getUuid())).iterator()) {
-                    if (cursor.hasNext()) {
-                        // User exists, let's load.
+                    applyUserData(c, user, cursor.hasNext() ? cursor.next() : null);
+                }
+                return true;
+            }, false);
+        } finally {
+            user.getIoLock().unlock();
+            user.getRefreshBuffer().requestDirectly();
+        }
+    }
+
+    @Override
+    public boolean loadUsers(Collection<UUID> uuids) {
+        return call(() -> {
+            MongoCollection<Document> c = database.getCollection("users");
+
+            List<User> users = uuids.stream()
+                    .map(uuid -> plugin.getUserManager().getOrMake(UserIdentifier.of(uuid, "null")))
+                    .collect(Collectors.toList());
+            List<User> changed = new ArrayList<>();
+
+            // hold the locks while reading, so a save can't happen between the read and the data being applied
+            List<Lock> locks = lockAll(users);
+            try {
+                Map<UUID, Long> revisions = new HashMap<>();
+                try (MongoCursor<Document> cursor = c.find(new Document("_id", new Document("$in", new ArrayList<>(uuids)))).projection(REVISION_PROJECTION).iterator()) {
+                    while (cursor.hasNext()) {
                         Document d = cursor.next();
-                        user.setNodes(revert((Map<String, Boolean>) d.get("perms")).entrySet().stream()
-                                .map(e -> NodeFactory.fromSerializedNode(e.getKey(), e.getValue()))
-                                .collect(Collectors.toSet())
-                        );
-                        user.getPrimaryGroup().setStoredValue(d.getString("primaryGroup"));
+                        revisions.put(d.get("_id", UUID.class), getRevision(d));
+                    }
+                }
 
-                        boolean save = plugin.getUserManager().giveDefaultIfNeeded(user, false);
+                List<User> toLoad = users.stream()
+                        .filter(u -> !userRevisions.isUnchanged(u, revisions.get(u.getUuid())))
+                        .collect(Collectors.toList());
 
-                        if (user.setName(d.getString("name"), false)) {
-                            save = true;
-                        }
+                if (!toLoad.isEmpty()) {
+                    List<UUID> toLoadIds = toLoad.stream().map(User::getUuid).collect(Collectors.toList());
 
-                        if (save) {
-                            c.replaceOne(new Document("_id", user.getUuid()), fromUser(user));
+                    Map<UUID, Document> documents = new HashMap<>();
+                    try (MongoCursor<Document> cursor = c.find(new Document("_id", new Document("$in", toLoadIds))).iterator()) {
+                        while (cursor.hasNext()) {
+                            Document d = cursor.next();
+                            documents.put(d.get("_id", UUID.class), d);
                         }
-                    } else {
-                        if (GenericUserManager.shouldSave(user)) {
-                            user.clearNodes();
-                            user.getPrimaryGroup().setStoredValue(null);
-                            plugin.getUserManager().giveDefaultIfNeeded(user, false);
+                    }
+
+                    for (User user : toLoad) {
+                        if (applyUserData(c, user, documents.get(user.getUuid()))) {
+                            changed.add(user);
                         }
                     }
                 }
-                return true;
-            }, false);
-        } finally {
-            user.getIoLock().unlock();
-            user.getRefreshBuffer().requestDirectly();
+            } finally {
+                unlockAll(locks);
+            }
+
+            // only recalculate the users cached data if something has actually changed
+            for (User user : changed) {
+                user.getRefreshBuffer().requestDirectly();
+            }
+            return true;
+        }, false);
+    }
+
+    /**
+     * Applies the data read from storage to a user. Must be called while holding the users io lock.
+     *
+     * @param c the users collection
+     * @param user the user
+     * @param d the users document, or null if they have no data in storage
+     * @return true if the users nodes or primary group were changed
+     */
+    private boolean applyUserData(MongoCollection<Document> c, User user, Document d) {
+        ImmutableSetMultimap<ImmutableContextSet, Node> previousNodes = user.getNodes();
+        String previousPrimaryGroup = user.getPrimaryGroup().getStoredValue();
+
+        if (d != null) {
+            // User exists, let's load.
+            user.setNodes(revert((Map<String, Boolean>) d.get("perms")).entrySet().stream()
+                    .map(e -> NodeFactory.fromSerializedNode(e.getKey(), e.getValue()))
+                    .collect(Collectors.toSet())
+            );
+            user.getPrimaryGroup().setStoredValue(d.getString("primaryGroup"));
+
+            boolean save = plugin.getUserManager().giveDefaultIfNeeded(user, false);
+
+            if (user.setName(d.getString("name"), false)) {
+                save = true;
+            }
+
+            if (save) {
+                Document updated = fromUser(user);
+                c.replaceOne(new Document("_id", user.getUuid()), updated);
+                userRevisions.record(user, getRevision(updated));
+            } else {
+                userRevisions.record(user, getRevision(d));
+            }
+        } else {
+            if (GenericUserManager.shouldSave(user)) {
+                user.clearNodes();
+                user.getPrimaryGroup().setStoredValue(null);
+                plugin.getUserManager().giveDefaultIfNeeded(user, false);
+            }
+            userRevisions.invalidate(user);
         }
+
+        return !previousNodes.equals(user.getNodes()) || !Objects.equals(previousPrimaryGroup, user.getPrimaryGroup().getStoredValue());
     }
 
     @Override
@@ -353,6 +462,7 @@ public class MongoDBBacking extends AbstractBacking {
         if (!GenericUserManager.shouldSave(user)) {
             user.getIoLock().lock();
             try {
+                userRevisions.invalidate(user);
                 return call(() -> {
                     MongoCollection<Document> c = database.getCollection("users");
                     return c.deleteOne(new Document("_id", user.getUuid())).wasAcknowledged();
@@ -366,13 +476,16 @@ public class MongoDBBacking extends AbstractBacking {
         try {
             return call(() -> {
                 MongoCollection<Document> c = database.getCollection("users");
+                Document d = fromUser(user);
+                userRevisions.invalidate(user);
                 try (MongoCursor<Document> cursor = c.find(new Document("_id", user.getUuid())).iterator()) {
                     if (!cursor.hasNext()) {
-                        c.insertOne(fromUser(user));
+                        c.insertOne(d);
                     } else {
-                        c.replaceOne(new Document("_id", user.getUuid()), fromUser(user));
+                        c.replaceOne(new Document("_id", user.getUuid()), d);
                     }
                 }
+                userRevisions.record(user, getRevision(d));
                 return true;
             }, false);
         } finally {
@@ -449,8 +562,11 @@ public class MongoDBBacking extends AbstractBacking {
                                 .map(e -> NodeFactory.fromSerializedNode(e.getKey(), e.getValue()))
                                 .collect(Collectors.toSet())
                         );
+                        groupRevisions.record(group, getRevision(d));
                     } else {
-                        c.insertOne(fromGroup(group));
+                        Document d = fromGroup(group);
+                        c.insertOne(d);
+                        groupRevisions.record(group, getRevision(d));
                     }
                 }
                 return true;
@@ -476,6 +592,7 @@ public class MongoDBBacking extends AbstractBacking {
                                 .map(e -> NodeFactory.fromSerializedNode(e.getKey(), e.getValue()))
                                 .collect(Collectors.toSet())
                         );
+                        groupRevisions.record(group, getRevision(d));
                         return true;
                     }
                     return false;
@@ -491,15 +608,24 @@ public class MongoDBBacking extends AbstractBacking {
         List<String> groups = new ArrayList<>();
         boolean success = call(() -> {
             MongoCollection<Document> c = database.getCollection("groups");
+            GroupManager gm = plugin.getGroupManager();
 
             boolean b = true;
-            try (MongoCursor<Document> cursor = c.find().iterator()) {
+            try (MongoCursor<Document> cursor = c.find().projection(REVISION_PROJECTION).iterator()) {
                 while (cursor.hasNext()) {
-                    String name = cursor.next().getString("_id");
+                    Document d = cursor.next();
+                    String name = d.getString("_id");
+                    groups.add(name);
+
+                    // only read the groups which have changed since they were last loaded or saved
+                    Group group = gm.getIfLoaded(name);
+                    if (group != null && groupRevisions.isUnchanged(group, getRevision(d))) {
+                        continue;
+                    }
+
                     if (!loadGroup(name)) {
                         b = false;
                     }
-                    groups.add(name);
                 }
             }
             return b;
@@ -520,7 +646,13 @@ public class MongoDBBacking extends AbstractBacking {
         try {
             return call(() -> {
                 MongoCollection<Document> c = database.getCollection("groups");
-                return c.replaceOne(new Document("_id", group.getName()), fromGroup(group)).wasAcknowledged();
+                Document d = fromGroup(group);
+                groupRevisions.invalidate(group);
+                boolean success = c.replaceOne(new Document("_id", group.getName()), d).wasAcknowledged();
+                if (success) {
+                    groupRevisions.record(group, getRevision(d));
+                }
+                return success;
             }, false);
         } finally {
             group.getIoLock().unlock();
@@ -534,6 +666,7 @@ public class MongoDBBacking extends AbstractBacking {
         try {
             success = call(() -> {
                 MongoCollection<Document> c = database.getCollection("groups");
+                groupRevisions.invalidate(group);
                 return c.deleteOne(new Document("_id", group.getName())).wasAcknowledged();
             }, false);
         } finally {
@@ -583,10 +716,13 @@ public class MongoDBBacking extends AbstractBacking {
 
                 try (MongoCursor<Document> cursor = c.find(new Document("_id", track.getName())).iterator()) {
                     if (!cursor.hasNext()) {
-                        c.insertOne(fromTrack(track));
+                        Document d = fromTrack(track);
+                        c.insertOne(d);
+                        trackRevisions.record(track, getRevision(d));
                     } else {
                         Document d = cursor.next();
                         track.setGroups((List<String>) d.get("groups"));
+                        trackRevisions.record(track, getRevision(d));
                     }
                 }
                 return true;
@@ -608,6 +744,7 @@ public class MongoDBBacking extends AbstractBacking {
                     if (cursor.hasNext()) {
                         Document d = cursor.next();
                         track.setGroups((List<String>) d.get("groups"));
+                        trackRevisions.record(track, getRevision(d));
                         return true;
                     }
                     return false;
@@ -623,15 +760,24 @@ public class MongoDBBacking extends AbstractBacking {
         List<String> tracks = new ArrayList<>();
         boolean success = call(() -> {
             MongoCollection<Document> c = database.getCollection("tracks");
+            TrackManager tm = plugin.getTrackManager();
 
             boolean b = true;
-            try (MongoCursor<Document> cursor = c.find().iterator()) {
+            try (MongoCursor<Document> cursor = c.find().projection(REVISION_PROJECTION).iterator()) {
                 while (cursor.hasNext()) {
-                    String name = cursor.next().getString("_id");
+                    Document d = cursor.next();
+                    String name = d.getString("_id");
+                    tracks.add(name);
+
+                    // only read the tracks which have changed since they were last loaded or saved
+                    Track track = tm.getIfLoaded(name);
+                    if (track != null && trackRevisions.isUnchanged(track, getRevision(d))) {
+                        continue;
+                    }
+
                     if (!loadTrack(name)) {
                         b = false;
                     }
-                    tracks.add(name);
                 }
             }
             return b;
@@ -652,7 +798,13 @@ public class MongoDBBacking extends AbstractBacking {
         try {
             return call(() -> {
                 MongoCollection<Document> c = database.getCollection("tracks");
-                return c.replaceOne(new Document("_id", track.getName()), fromTrack(track)).wasAcknowledged();
+                Document d = fromTrack(track);
+                trackRevisions.invalidate(track);
+                boolean success = c.replaceOne(new Document("_id", track.getName()), d).wasAcknowledged();
+                if (success) {
+                    trackRevisions.record(track, getRevision(d));
+                }
+                return success;
             }, false);
         } finally {
             track.getIoLock().unlock();
@@ -666,6 +818,7 @@ public class MongoDBBacking extends AbstractBacking {
         try {
             success = call(() -> {
                 MongoCollection<Document> c = database.getCollection("tracks");
+                trackRevisions.invalidate(track);
                 return c.deleteOne(new Document("_id", track.getName())).wasAcknowledged();
             }, false);
         } finally {
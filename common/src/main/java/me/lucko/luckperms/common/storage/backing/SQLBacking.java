@@ -25,9 +25,15 @@
 
 package me.lucko.luckperms.common.storage.backing;
 
+import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
@@ -35,10 +41,12 @@ import com.google.gson.reflect.TypeToken;
 import me.lucko.luckperms.api.HeldPermission;
 import me.lucko.luckperms.api.LogEntry;
 import me.lucko.luckperms.api.Node;
+import me.lucko.luckperms.api.context.ImmutableContextSet;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.core.NodeModel;
 import me.lucko.luckperms.common.core.UserIdentifier;
 import me.lucko.luckperms.common.core.model.Group;
+import me.lucko.luckperms.common.core.model.PermissionHolder;
 import me.lucko.luckperms.common.core.model.Track;
 import me.lucko.luckperms.common.core.model.User;
 import me.lucko.luckperms.common.data.Log;
@@ -48,6 +56,7 @@ import me.lucko.luckperms.common.managers.impl.GenericUserManager;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.backing.sqlprovider.SQLProvider;
 import me.lucko.luckperms.common.storage.backing.utils.LegacySQLSchemaMigration;
+import me.lucko.luckperms.common.storage.backing.utils.RevisionTracker;
 import me.lucko.luckperms.common.storage.holder.NodeHeldPermission;
 
 import java.io.BufferedReader;
@@ -61,13 +70,18 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -78,10 +92,12 @@ public class SQLBacking extends AbstractBacking {
     private static final String USER_PERMISSIONS_DELETE_SPECIFIC = "DELETE FROM {prefix}user_permissions WHERE uuid=? AND permission=? AND value=? AND server=? AND world=? AND expiry=? AND contexts=?";
     private static final String USER_PERMISSIONS_DELETE = "DELETE FROM {prefix}user_permissions WHERE uuid=?";
     private static final String USER_PERMISSIONS_INSERT = "INSERT INTO {prefix}user_permissions(uuid, permission, value, server, world, expiry, contexts) VALUES(?, ?, ?, ?, ?, ?, ?)";
+    private static final String USER_PERMISSIONS_SELECT_MULTIPLE = "SELECT uuid, permission, value, server, world, expiry, contexts FROM {prefix}user_permissions WHERE uuid IN ({uuids})";
     private static final String USER_PERMISSIONS_SELECT_DISTINCT = "SELECT DISTINCT uuid FROM {prefix}user_permissions";
     private static final String USER_PERMISSIONS_SELECT_PERMISSION = "SELECT uuid, value, server, world, expiry, contexts FROM {prefix}user_permissions WHERE permission=?";
 
     private static final String PLAYER_SELECT = "SELECT username, primary_group FROM {prefix}players WHERE uuid=?";
+    private static final String PLAYER_SELECT_MULTIPLE = "SELECT uuid, username, primary_group FROM {prefix}players WHERE uuid IN ({uuids})";
     private static final String PLAYER_SELECT_UUID = "SELECT uuid FROM {prefix}players WHERE username=? LIMIT 1";
     private static final String PLAYER_SELECT_USERNAME = "SELECT username FROM {prefix}players WHERE uuid=? LIMIT 1";
     private static final String PLAYER_INSERT = "INSERT INTO {prefix}players VALUES(?, ?, ?)";
@@ -93,6 +109,8 @@ public class SQLBacking extends AbstractBacking {
     private static final String GROUP_PERMISSIONS_DELETE = "DELETE FROM {prefix}group_permissions WHERE name=?";
     private static final String GROUP_PERMISSIONS_DELETE_SPECIFIC = "DELETE FROM {prefix}group_permissions WHERE name=? AND permission=? AND value=? AND server=? AND world=? AND expiry=? AND contexts=?";
     private static final String GROUP_PERMISSIONS_INSERT = "INSERT INTO {prefix}group_permissions(name, permission, value, server, world, expiry, contexts) VALUES(?, ?, ?, ?, ?, ?, ?)";
+    private static final String GROUP_PERMISSIONS_SELECT_ALL = "SELECT name, permission, value, server, world, expiry, contexts FROM {prefix}group_permissions";
+    private static final String GROUP_PERMISSIONS_SELECT_MULTIPLE = "SELECT name, permission, value, server, world, expiry, contexts FROM {prefix}group_permissions WHERE name IN ({names})";
     private static final String GROUP_PERMISSIONS_SELECT_PERMISSION = "SELECT name, value, server, world, expiry, contexts FROM {prefix}group_permissions WHERE permission=?";
 
     private static final String GROUP_SELECT_ALL = "SELECT name FROM {prefix}groups";
@@ -104,13 +122,37 @@ public class SQLBacking extends AbstractBacking {
 
     private static final String TRACK_INSERT = "INSERT INTO {prefix}tracks VALUES(?, ?)";
     private static final String TRACK_SELECT = "SELECT groups FROM {prefix}tracks WHERE name=?";
-    private static final String TRACK_SELECT_ALL = "SELECT * FROM {prefix}tracks";
+    private static final String TRACK_SELECT_ALL = "SELECT name FROM {prefix}tracks";
+    private static final String TRACK_SELECT_MULTIPLE = "SELECT name, groups FROM {prefix}tracks WHERE name IN ({names})";
     private static final String TRACK_UPDATE = "UPDATE {prefix}tracks SET groups=? WHERE name=?";
     private static final String TRACK_DELETE = "DELETE FROM {prefix}tracks WHERE name=?";
 
+    private static final String REVISION_SELECT = "SELECT revision FROM {prefix}revisions WHERE id=?";
+    private static final String REVISION_SELECT_MULTIPLE = "SELECT id, revision FROM {prefix}revisions WHERE id IN ({ids})";
+    private static final String REVISION_SELECT_ALL = "SELECT id, revision FROM {prefix}revisions WHERE id LIKE ?";
+    private static final String REVISION_INCREMENT = "UPDATE {prefix}revisions SET revision=revision+1 WHERE id=?";
+    private static final String REVISION_INCREMENT_IF = "UPDATE {prefix}revisions SET revision=revision+1 WHERE id=? AND revision=?";
+    private static final String REVISION_INCREMENT_ALL = "UPDATE {prefix}revisions SET revision=revision+1 WHERE id LIKE ?";
+    private static final String MYSQL_REVISION_INSERT = "INSERT INTO {prefix}revisions (id, revision) VALUES(?, 0) ON DUPLICATE KEY UPDATE id=id";
+    private static final String H2_REVISION_INSERT = "MERGE INTO {prefix}revisions (id, revision) VALUES(?, 0)";
+    private static final String SQLITE_REVISION_INSERT = "INSERT OR IGNORE INTO {prefix}revisions (id, revision) VALUES(?, 0)";
+    private static final String POSTGRESQL_REVISION_INSERT = "INSERT INTO {prefix}revisions (id, revision) VALUES(?, 0) ON CONFLICT (id) DO NOTHING";
+
+    private static final String USER_REVISION_PREFIX = "user/";
+    private static final String GROUP_REVISION_PREFIX = "group/";
+    private static final String TRACK_REVISION_PREFIX = "track/";
+
+    // the presence of this row marks that every server using the database increments revisions when saving
+    private static final String REVISIONS_MARKER_ID = "luckperms/revisions-maintained";
+
     private static final String ACTION_INSERT = "INSERT INTO {prefix}actions(time, actor_uuid, actor_name, type, acted_uuid, acted_name, action) VALUES(?, ?, ?, ?, ?, ?, ?)";
     private static final String ACTION_SELECT_ALL = "SELECT * FROM {prefix}actions";
 
+    /**
+     * The maximum number of users, groups or tracks to load in a single query
+     */
+    private static final int LOAD_BATCH_SIZE = 100;
+
 
     @Getter
     private final Gson gson;
@@ -120,6 +162,24 @@ public class SQLBacking extends AbstractBacking {
     @Getter
     private final Function<String, String> prefix;
 
+    /**
+     * The nodes each holder was last known to have in storage, so the changes made by a save can be computed
+     * locally. Keyed by identity, and only accessed while holding the holder's io lock.
+     */
+    private final Cache<PermissionHolder, NodeSnapshot> storedNodes = Caffeine.newBuilder().weakKeys().build();
+
+    /*
+     * The revisions each object was last loaded or saved at, so syncs can skip objects which haven't changed
+     */
+    private final RevisionTracker<User> userRevisions = new RevisionTracker<>(u -> Maps.immutableEntry(u.getNodes(), u.getPrimaryGroup().getStoredValue()));
+    private final RevisionTracker<Group> groupRevisions = new RevisionTracker<>(Group::getNodes);
+    private final RevisionTracker<Track> trackRevisions = new RevisionTracker<>(Track::getGroups);
+
+    /**
+     * If the revisions marker was present when it was last checked
+     */
+    private volatile boolean revisionsMaintained = false;
+
     public SQLBacking(LuckPermsPlugin plugin, SQLProvider provider, String prefix) {
         super(plugin, provider.getName());
         this.provider = provider;
@@ -146,39 +206,10 @@ public class SQLBacking extends AbstractBacking {
             provider.init();
 
             // Init tables
+            boolean created = false;
             if (!tableExists(prefix.apply("{prefix}user_permissions"))) {
-                String schemaFileName = "schema/" + provider.getName().toLowerCase() + ".sql";
-                try (InputStream is = plugin.getResourceStream(schemaFileName)) {
-                    if (is == null) {
-                        throw new Exception("Couldn't locate schema file for " + provider.getName());
-                    }
-
-                    try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-                        try (Connection connection = provider.getConnection()) {
-                            try (Statement s = connection.createStatement()) {
-                                StringBuilder sb = new StringBuilder();
-                                String line;
-                                while ((line = reader.readLine()) != null) {
-                                    if (line.startsWith("--") || line.startsWith("#")) continue;
-
-                                    sb.append(line);
-
-                                    // check for end of declaration
-                                    if (line.endsWith(";")) {
-                                        sb.deleteCharAt(sb.length() - 1);
-
-                                        String result = prefix.apply(sb.toString().trim());
-                                        if (!result.isEmpty()) s.addBatch(result);
-
-                                        // reset
-                                        sb = new StringBuilder();
-                                    }
-                                }
-                                s.executeBatch();
-                            }
-                        }
-                    }
-                }
+                executeSchema("schema/" + provider.getName().toLowerCase() + ".sql");
+                created = true;
 
                 // Try migration from legacy backing
                 if (tableExists("lp_users")) {
@@ -190,6 +221,27 @@ public class SQLBacking extends AbstractBacking {
                 }
             }
 
+            // Added after the main schema, so may be missing from existing databases
+            if (!tableExists(prefix.apply("{prefix}revisions"))) {
+                executeSchema("schema/revisions/" + provider.getName().toLowerCase() + ".sql");
+            }
+
+            try (Connection c = provider.getConnection()) {
+                if (created) {
+                    // a new database can't have been written to by older versions
+                    try (PreparedStatement ps = c.prepareStatement(prefix.apply(getRevisionInsertQuery()))) {
+                        ps.setString(1, REVISIONS_MARKER_ID);
+                        ps.execute();
+                    }
+                }
+
+                if (!checkRevisionsMaintained(c)) {
+                    plugin.getLog().info("Syncs will reload all data, as older versions which don't increment revisions may be using the database.");
+                    plugin.getLog().info("Once every server using it has been updated, run the following statement to enable skipping unchanged data:");
+                    plugin.getLog().info(prefix.apply(getRevisionInsertQuery()).replace("?", "'" + REVISIONS_MARKER_ID + "'"));
+                }
+            }
+
             setAcceptingLogins(true);
         } catch (Exception e) {
             e.printStackTrace();
@@ -198,6 +250,40 @@ public class SQLBacking extends AbstractBacking {
         }
     }
 
+    private void executeSchema(String schemaFileName) throws Exception {
+        try (InputStream is = plugin.getResourceStream(schemaFileName)) {
+            if (is == null) {
+                throw new Exception("Couldn't locate schema file for " + provider.getName());
+            }
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+                try (Connection connection = provider.getConnection()) {
+                    try (Statement s = connection.createStatement()) {
+                        StringBuilder sb = new StringBuilder();
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            if (line.startsWith("--") || line.startsWith("#")) continue;
+
+                            sb.append(line);
+
+                            // check for end of declaration
+                            if (line.endsWith(";")) {
+                                sb.deleteCharAt(sb.length() - 1);
+
+                                String result = prefix.apply(sb.toString().trim());
+                                if (!result.isEmpty()) s.addBatch(result);
+
+                                // reset
+                                sb = new StringBuilder();
+                            }
+                        }
+                        s.executeBatch();
+                    }
+                }
+            }
+        }
+    }
+
     @Override
     public void shutdown() {
         try {
@@ -270,6 +356,10 @@ public class SQLBacking extends AbstractBacking {
                     e.printStackTrace();
                     success = false;
                 }
+
+                // the rows of any user may have changed
+                incrementAllRevisions(c, USER_REVISION_PREFIX);
+                userRevisions.invalidateAll();
             }
 
             if (bulkUpdate.getDataType().isIncludingGroups()) {
@@ -281,6 +371,9 @@ public class SQLBacking extends AbstractBacking {
                     e.printStackTrace();
                     success = false;
                 }
+
+                incrementAllRevisions(c, GROUP_REVISION_PREFIX);
+                groupRevisions.invalidateAll();
             }
 
         } catch (SQLException e) {
@@ -288,6 +381,8 @@ public class SQLBacking extends AbstractBacking {
             success = false;
         }
 
+        // rows may have been changed in any number of ways
+        storedNodes.invalidateAll();
         return success;
     }
 
@@ -299,9 +394,12 @@ public class SQLBacking extends AbstractBacking {
             List<NodeModel> data = new ArrayList<>();
             AtomicReference<String> primaryGroup = new AtomicReference<>(null);
             AtomicReference<String> userName = new AtomicReference<>(null);
+            Long revision;
 
-            // Collect user permissions
+            // Collect user permissions. The revision is read first, so it can only ever be older than the data.
             try (Connection c = provider.getConnection()) {
+                revision = readRevision(c, revisionId(user));
+
                 try (PreparedStatement ps = c.prepareStatement(prefix.apply(USER_PERMISSIONS_SELECT))) {
                     ps.setString(1, user.getUuid().toString());
 
@@ -339,36 +437,7 @@ public class SQLBacking extends AbstractBacking {
                 return false;
             }
 
-            // update username & primary group
-            String pg = primaryGroup.get();
-            if (pg == null) {
-                pg = "default";
-            }
-            user.getPrimaryGroup().setStoredValue(pg);
-
-            // Update their username to what was in the storage if the one in the local instance is null
-            user.setName(userName.get(), false);
-
-            // If the user has any data in storage
-            if (!data.isEmpty()) {
-                Set<Node> nodes = data.stream().map(NodeModel::toNode).collect(Collectors.toSet());
-                user.setNodes(nodes);
-
-                // Save back to the store if data was changed
-                if (plugin.getUserManager().giveDefaultIfNeeded(user, false)) {
-                    // This should be fine, as the lock will be acquired by the same thread.
-                    saveUser(user);
-                }
-
-            } else {
-                // User has no data in storage.
-                if (GenericUserManager.shouldSave(user)) {
-                    user.clearNodes();
-                    user.getPrimaryGroup().setStoredValue(null);
-                    plugin.getUserManager().giveDefaultIfNeeded(user, false);
-                }
-            }
-
+            applyUserData(user, data, revision, primaryGroup.get(), userName.get());
             return true;
         } finally {
             user.getIoLock().unlock();
@@ -377,110 +446,208 @@ public class SQLBacking extends AbstractBacking {
     }
 
     @Override
-    public boolean saveUser(User user) {
-        user.getIoLock().lock();
-        try {
-            // Empty data - just delete from the DB.
-            if (!GenericUserManager.shouldSave(user)) {
-                try (Connection c = provider.getConnection()) {
-                    try (PreparedStatement ps = c.prepareStatement(prefix.apply(USER_PERMISSIONS_DELETE))) {
-                        ps.setString(1, user.getUuid().toString());
-                        ps.execute();
-                    }
-                    try (PreparedStatement ps = c.prepareStatement(prefix.apply(PLAYER_UPDATE_PRIMARY_GROUP))) {
-                        ps.setString(1, "default");
-                        ps.setString(2, user.getUuid().toString());
-                        ps.execute();
-                    }
-                } catch (SQLException e) {
-                    e.printStackTrace();
-                    return false;
-                }
-                return true;
+    public boolean loadUsers(Collection<UUID> uuids) {
+        boolean success = true;
+        for (List<UUID> batch : Iterables.partition(uuids, LOAD_BATCH_SIZE)) {
+            if (!loadUserBatch(batch)) {
+                success = false;
             }
+        }
+        return success;
+    }
+
+    private boolean loadUserBatch(List<UUID> uuids) {
+        List<User> users = uuids.stream()
+                .map(uuid -> plugin.getUserManager().getOrMake(UserIdentifier.of(uuid, "null")))
+                .collect(Collectors.toList());
+
+        Map<UUID, List<NodeModel>> data = new HashMap<>();
+        Map<UUID, String> primaryGroups = new HashMap<>();
+        Map<UUID, String> userNames = new HashMap<>();
+        List<User> changed = new ArrayList<>();
 
-            // Get a snapshot of current data.
-            Set<NodeModel> remote = new HashSet<>();
+        // hold the locks while reading, so a save can't happen between the read and the data being applied
+        List<Lock> locks = lockAll(users);
+        try {
+            List<User> toLoad;
+            Map<String, Long> revisions;
             try (Connection c = provider.getConnection()) {
-                try (PreparedStatement ps = c.prepareStatement(prefix.apply(USER_PERMISSIONS_SELECT))) {
-                    ps.setString(1, user.getUuid().toString());
+                // revisions are read first, so they can only ever be older than the data
+                revisions = checkRevisionsMaintained(c)
+                        ? readRevisions(c, users.stream().map(SQLBacking::revisionId).collect(Collectors.toList()))
+                        : Collections.emptyMap();
+
+                toLoad = users.stream()
+                        .filter(u -> !userRevisions.isUnchanged(u, revisions.get(revisionId(u))))
+                        .collect(Collectors.toList());
+
+                if (toLoad.isEmpty()) {
+                    return true;
+                }
+
+                String placeholders = String.join(", ", Collections.nCopies(toLoad.size(), "?"));
+                try (PreparedStatement ps = c.prepareStatement(prefix.apply(USER_PERMISSIONS_SELECT_MULTIPLE).replace("{uuids}", placeholders))) {
+                    for (int i = 0; i < toLoad.size(); i++) {
+                        ps.setString(i + 1, toLoad.get(i).getUuid().toString());
+                    }
 
                     try (ResultSet rs = ps.executeQuery()) {
                         while (rs.next()) {
+                            UUID uuid = UUID.fromString(rs.getString("uuid"));
                             String permission = rs.getString("permission");
                             boolean value = rs.getBoolean("value");
                             String server = rs.getString("server");
                             String world = rs.getString("world");
                             long expiry = rs.getLong("expiry");
                             String contexts = rs.getString("contexts");
-                            remote.add(NodeModel.deserialize(permission, value, server, world, expiry, contexts));
+                            data.computeIfAbsent(uuid, u -> new ArrayList<>()).add(NodeModel.deserialize(permission, value, server, world, expiry, contexts));
+                        }
+                    }
+                }
+
+                try (PreparedStatement ps = c.prepareStatement(prefix.apply(PLAYER_SELECT_MULTIPLE).replace("{uuids}", placeholders))) {
+                    for (int i = 0; i < toLoad.size(); i++) {
+                        ps.setString(i + 1, toLoad.get(i).getUuid().toString());
+                    }
+
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            UUID uuid = UUID.fromString(rs.getString("uuid"));
+                            userNames.put(uuid, rs.getString("username"));
+                            primaryGroups.put(uuid, rs.getString("primary_group"));
                         }
                     }
                 }
             } catch (SQLException e) {
+                e.printStackTrace();
                 return false;
             }
 
-            Set<NodeModel> local = user.getNodes().values().stream().map(NodeModel::fromNode).collect(Collectors.toSet());
+            for (User user : toLoad) {
+                UUID uuid = user.getUuid();
+                if (applyUserData(user, data.getOrDefault(uuid, Collections.emptyList()), revisions.get(revisionId(user)), primaryGroups.get(uuid), userNames.get(uuid))) {
+                    changed.add(user);
+                }
+            }
+        } finally {
+            unlockAll(locks);
+        }
 
-            Map.Entry<Set<NodeModel>, Set<NodeModel>> diff = compareSets(local, remote);
+        // only recalculate the users cached data if something has actually changed
+        for (User user : changed) {
+            user.getRefreshBuffer().requestDirectly();
+        }
+        return true;
+    }
 
-            Set<NodeModel> toAdd = diff.getKey();
-            Set<NodeModel> toRemove = diff.getValue();
+    /**
+     * Applies the data read from storage to a user. Must be called while holding the users io lock.
+     *
+     * @param user the user
+     * @param data the users nodes in storage
+     * @param revision the users revision in storage, or null
+     * @param primaryGroup the users primary group in storage, or null
+     * @param userName the users name in storage, or null
+     * @return true if the users nodes or primary group were changed
+     */
+    private boolean applyUserData(User user, List<NodeModel> data, Long revision, String primaryGroup, String userName) {
+        ImmutableSetMultimap<ImmutableContextSet, Node> previousNodes = user.getNodes();
+        String previousPrimaryGroup = user.getPrimaryGroup().getStoredValue();
+
+        // update username & primary group
+        String pg = primaryGroup;
+        if (pg == null) {
+            pg = "default";
+        }
+        user.getPrimaryGroup().setStoredValue(pg);
 
-            if (!toRemove.isEmpty()) {
-                try (Connection c = provider.getConnection()) {
-                    try (PreparedStatement ps = c.prepareStatement(prefix.apply(USER_PERMISSIONS_DELETE_SPECIFIC))) {
-                        for (NodeModel nd : toRemove) {
-                            ps.setString(1, user.getUuid().toString());
-                            ps.setString(2, nd.getPermission());
-                            ps.setBoolean(3, nd.isValue());
-                            ps.setString(4, nd.getServer());
-                            ps.setString(5, nd.getWorld());
-                            ps.setLong(6, nd.getExpiry());
-                            ps.setString(7, nd.serializeContext());
-                            ps.addBatch();
-                        }
-                        ps.executeBatch();
-                    }
-                } catch (SQLException e) {
-                    e.printStackTrace();
-                    return false;
-                }
+        // Update their username to what was in the storage if the one in the local instance is null
+        user.setName(userName, false);
+
+        storedNodes.put(user, new NodeSnapshot(ImmutableSet.copyOf(data), revision));
+
+        // If the user has any data in storage
+        if (!data.isEmpty()) {
+            Set<Node> nodes = data.stream().map(NodeModel::toNode).collect(Collectors.toSet());
+            user.setNodes(nodes);
+
+            // Save back to the store if data was changed
+            if (plugin.getUserManager().giveDefaultIfNeeded(user, false)) {
+                // This should be fine, as the lock will be acquired by the same thread.
+                saveUser(user);
+            } else {
+                userRevisions.record(user, revision);
+            }
+
+        } else {
+            // User has no data in storage.
+            if (GenericUserManager.shouldSave(user)) {
+                user.clearNodes();
+                user.getPrimaryGroup().setStoredValue(null);
+                plugin.getUserManager().giveDefaultIfNeeded(user, false);
             }
+            userRevisions.record(user, revision);
+        }
 
-            if (!toAdd.isEmpty()) {
+        return !previousNodes.equals(user.getNodes()) || !Objects.equals(previousPrimaryGroup, user.getPrimaryGroup().getStoredValue());
+    }
+
+    @Override
+    public boolean saveUser(User user) {
+        user.getIoLock().lock();
+        try {
+            // Empty data - just delete from the DB.
+            if (!GenericUserManager.shouldSave(user)) {
+                long revision;
                 try (Connection c = provider.getConnection()) {
-                    try (PreparedStatement ps = c.prepareStatement(prefix.apply(USER_PERMISSIONS_INSERT))) {
-                        for (NodeModel nd : toAdd) {
+                    revision = runTransaction(c, () -> {
+                        long r = incrementRevision(c, revisionId(user));
+
+                        try (PreparedStatement ps = c.prepareStatement(prefix.apply(USER_PERMISSIONS_DELETE))) {
                             ps.setString(1, user.getUuid().toString());
-                            ps.setString(2, nd.getPermission());
-                            ps.setBoolean(3, nd.isValue());
-                            ps.setString(4, nd.getServer());
-                            ps.setString(5, nd.getWorld());
-                            ps.setLong(6, nd.getExpiry());
-                            ps.setString(7, nd.serializeContext());
-                            ps.addBatch();
+                            ps.execute();
                         }
-                        ps.executeBatch();
-                    }
+                        try (PreparedStatement ps = c.prepareStatement(prefix.apply(PLAYER_UPDATE_PRIMARY_GROUP))) {
+                            ps.setString(1, "default");
+                            ps.setString(2, user.getUuid().toString());
+                            ps.execute();
+                        }
+                        return r;
+                    });
                 } catch (SQLException e) {
+                    storedNodes.invalidate(user);
+                    userRevisions.invalidate(user);
                     e.printStackTrace();
                     return false;
                 }
+                storedNodes.put(user, new NodeSnapshot(ImmutableSet.of(), revision));
+                userRevisions.record(user, revision);
+                return true;
             }
 
+            Set<NodeModel> local = user.getNodes().values().stream().map(NodeModel::fromNode).collect(Collectors.toSet());
+
+            long revision;
             try (Connection c = provider.getConnection()) {
-                try (PreparedStatement ps = c.prepareStatement(prefix.apply(PLAYER_UPDATE_PRIMARY_GROUP))) {
-                    ps.setString(1, user.getPrimaryGroup().getStoredValue() == null ? "default" : user.getPrimaryGroup().getStoredValue());
-                    ps.setString(2, user.getUuid().toString());
-                    ps.execute();
-                }
+                revision = runTransaction(c, () -> {
+                    long r = writeNodes(c, user, user.getUuid().toString(), local, USER_PERMISSIONS_SELECT, USER_PERMISSIONS_DELETE_SPECIFIC, USER_PERMISSIONS_INSERT);
+
+                    try (PreparedStatement ps = c.prepareStatement(prefix.apply(PLAYER_UPDATE_PRIMARY_GROUP))) {
+                        ps.setString(1, user.getPrimaryGroup().getStoredValue() == null ? "default" : user.getPrimaryGroup().getStoredValue());
+                        ps.setString(2, user.getUuid().toString());
+                        ps.execute();
+                    }
+                    return r;
+                });
             } catch (SQLException e) {
+                storedNodes.invalidate(user);
+                userRevisions.invalidate(user);
                 e.printStackTrace();
                 return false;
             }
 
+            storedNodes.put(user, new NodeSnapshot(ImmutableSet.copyOf(local), revision));
+            userRevisions.record(user, revision);
             return true;
         } finally {
             user.getIoLock().unlock();
@@ -595,8 +762,11 @@ public class SQLBacking extends AbstractBacking {
         group.getIoLock().lock();
         try {
             List<NodeModel> data = new ArrayList<>();
+            Long revision;
 
             try (Connection c = provider.getConnection()) {
+                revision = readRevision(c, revisionId(group));
+
                 try (PreparedStatement ps = c.prepareStatement(prefix.apply(GROUP_PERMISSIONS_SELECT))) {
                     ps.setString(1, group.getName());
 
@@ -624,6 +794,8 @@ public class SQLBacking extends AbstractBacking {
                 group.clearNodes();
             }
 
+            storedNodes.put(group, new NodeSnapshot(ImmutableSet.copyOf(data), revision));
+            groupRevisions.record(group, revision);
             return true;
         } finally {
             group.getIoLock().unlock();
@@ -632,7 +804,7 @@ public class SQLBacking extends AbstractBacking {
 
     @Override
     public boolean loadAllGroups() {
-        List<String> groups = new ArrayList<>();
+        Set<String> groups = new HashSet<>();
         try (Connection c = provider.getConnection()) {
             try (PreparedStatement ps = c.prepareStatement(prefix.apply(GROUP_SELECT_ALL))) {
                 try (ResultSet rs = ps.executeQuery()) {
@@ -641,61 +813,41 @@ public class SQLBacking extends AbstractBacking {
                     }
                 }
             }
-
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
         }
 
-        boolean success = true;
-        for (String g : groups) {
-            if (!loadGroup(g)) {
-                success = false;
-            }
-        }
-
-        if (success) {
-            GroupManager gm = plugin.getGroupManager();
-            gm.getAll().values().stream()
-                    .filter(g -> !groups.contains(g.getName()))
-                    .forEach(gm::unload);
-        }
-        return success;
-    }
+        GroupManager gm = plugin.getGroupManager();
+        List<Group> loaded = groups.stream().map(gm::getOrMake).collect(Collectors.toList());
 
-    @Override
-    public boolean saveGroup(Group group) {
-        group.getIoLock().lock();
+        // hold the locks while reading, so a save can't happen between the read and the data being applied
+        List<Lock> locks = lockAll(loaded);
         try {
-            // Empty data, just delete.
-            if (group.getNodes().isEmpty()) {
-                try (Connection c = provider.getConnection()) {
-                    try (PreparedStatement ps = c.prepareStatement(prefix.apply(GROUP_PERMISSIONS_DELETE))) {
-                        ps.setString(1, group.getName());
-                        ps.execute();
-                    }
-                } catch (SQLException e) {
-                    e.printStackTrace();
-                    return false;
-                }
-                return true;
-            }
-
-            // Get a snapshot of current data
-            Set<NodeModel> remote = new HashSet<>();
+            Map<String, List<NodeModel>> data = new HashMap<>();
+            Map<String, Long> revisions;
+            List<Group> toLoad;
             try (Connection c = provider.getConnection()) {
-                try (PreparedStatement ps = c.prepareStatement(prefix.apply(GROUP_PERMISSIONS_SELECT))) {
-                    ps.setString(1, group.getName());
+                // revisions are read first, so they can only ever be older than the data
+                revisions = checkRevisionsMaintained(c) ? readAllRevisions(c, GROUP_REVISION_PREFIX) : Collections.emptyMap();
 
-                    try (ResultSet rs = ps.executeQuery()) {
-                        while (rs.next()) {
-                            String permission = rs.getString("permission");
-                            boolean value = rs.getBoolean("value");
-                            String server = rs.getString("server");
-                            String world = rs.getString("world");
-                            long expiry = rs.getLong("expiry");
-                            String contexts = rs.getString("contexts");
-                            remote.add(NodeModel.deserialize(permission, value, server, world, expiry, contexts));
+                toLoad = loaded.stream()
+                        .filter(g -> !groupRevisions.isUnchanged(g, revisions.get(revisionId(g))))
+                        .collect(Collectors.toList());
+
+                if (toLoad.size() == loaded.size()) {
+                    // read all of the groups permissions in one go, rather than querying for each group in turn
+                    try (PreparedStatement ps = c.prepareStatement(prefix.apply(GROUP_PERMISSIONS_SELECT_ALL))) {
+                        readGroupNodes(ps, data);
+                    }
+                } else {
+                    for (List<Group> batch : Iterables.partition(toLoad, LOAD_BATCH_SIZE)) {
+                        String placeholders = String.join(", ", Collections.nCopies(batch.size(), "?"));
+                        try (PreparedStatement ps = c.prepareStatement(prefix.apply(GROUP_PERMISSIONS_SELECT_MULTIPLE).replace("{names}", placeholders))) {
+                            for (int i = 0; i < batch.size(); i++) {
+                                ps.setString(i + 1, batch.get(i).getName());
+                            }
+                            readGroupNodes(ps, data);
                         }
                     }
                 }
@@ -704,55 +856,86 @@ public class SQLBacking extends AbstractBacking {
                 return false;
             }
 
-            Set<NodeModel> local = group.getNodes().values().stream().map(NodeModel::fromNode).collect(Collectors.toSet());
+            for (Group group : toLoad) {
+                List<NodeModel> nodes = data.get(group.getName());
+                Long revision = revisions.get(revisionId(group));
+                if (nodes != null) {
+                    group.setNodes(nodes.stream().map(NodeModel::toNode).collect(Collectors.toSet()));
+                    storedNodes.put(group, new NodeSnapshot(ImmutableSet.copyOf(nodes), revision));
+                } else {
+                    group.clearNodes();
+                    storedNodes.put(group, new NodeSnapshot(ImmutableSet.of(), revision));
+                }
+                groupRevisions.record(group, revision);
+            }
+        } finally {
+            unlockAll(locks);
+        }
 
-            Map.Entry<Set<NodeModel>, Set<NodeModel>> diff = compareSets(local, remote);
+        gm.getAll().values().stream()
+                .filter(g -> !groups.contains(g.getName()))
+                .forEach(gm::unload);
+        return true;
+    }
 
-            Set<NodeModel> toAdd = diff.getKey();
-            Set<NodeModel> toRemove = diff.getValue();
+    private static void readGroupNodes(PreparedStatement ps, Map<String, List<NodeModel>> data) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                // group names are matched case-insensitively, the same as a "WHERE name=?" lookup
+                String name = rs.getString("name").toLowerCase();
+                String permission = rs.getString("permission");
+                boolean value = rs.getBoolean("value");
+                String server = rs.getString("server");
+                String world = rs.getString("world");
+                long expiry = rs.getLong("expiry");
+                String contexts = rs.getString("contexts");
+                data.computeIfAbsent(name, n -> new ArrayList<>()).add(NodeModel.deserialize(permission, value, server, world, expiry, contexts));
+            }
+        }
+    }
 
-            if (!toRemove.isEmpty()) {
+    @Override
+    public boolean saveGroup(Group group) {
+        group.getIoLock().lock();
+        try {
+            // Empty data, just delete.
+            if (group.getNodes().isEmpty()) {
+                long revision;
                 try (Connection c = provider.getConnection()) {
-                    try (PreparedStatement ps = c.prepareStatement(prefix.apply(GROUP_PERMISSIONS_DELETE_SPECIFIC))) {
-                        for (NodeModel nd : toRemove) {
+                    revision = runTransaction(c, () -> {
+                        long r = incrementRevision(c, revisionId(group));
+
+                        try (PreparedStatement ps = c.prepareStatement(prefix.apply(GROUP_PERMISSIONS_DELETE))) {
                             ps.setString(1, group.getName());
-                            ps.setString(2, nd.getPermission());
-                            ps.setBoolean(3, nd.isValue());
-                            ps.setString(4, nd.getServer());
-                            ps.setString(5, nd.getWorld());
-                            ps.setLong(6, nd.getExpiry());
-                            ps.setString(7, nd.serializeContext());
-                            ps.addBatch();
+                            ps.execute();
                         }
-                        ps.executeBatch();
-                    }
+                        return r;
+                    });
                 } catch (SQLException e) {
+                    storedNodes.invalidate(group);
+                    groupRevisions.invalidate(group);
                     e.printStackTrace();
                     return false;
                 }
+                storedNodes.put(group, new NodeSnapshot(ImmutableSet.of(), revision));
+                groupRevisions.record(group, revision);
+                return true;
             }
 
-            if (!toAdd.isEmpty()) {
-                try (Connection c = provider.getConnection()) {
-                    try (PreparedStatement ps = c.prepareStatement(prefix.apply(GROUP_PERMISSIONS_INSERT))) {
-                        for (NodeModel nd : toAdd) {
-                            ps.setString(1, group.getName());
-                            ps.setString(2, nd.getPermission());
-                            ps.setBoolean(3, nd.isValue());
-                            ps.setString(4, nd.getServer());
-                            ps.setString(5, nd.getWorld());
-                            ps.setLong(6, nd.getExpiry());
-                            ps.setString(7, nd.serializeContext());
-                            ps.addBatch();
-                        }
-                        ps.executeBatch();
-                    }
-                } catch (SQLException e) {
-                    e.printStackTrace();
-                    return false;
-                }
+            Set<NodeModel> local = group.getNodes().values().stream().map(NodeModel::fromNode).collect(Collectors.toSet());
+
+            long revision;
+            try (Connection c = provider.getConnection()) {
+                revision = runTransaction(c, () -> writeNodes(c, group, group.getName(), local, GROUP_PERMISSIONS_SELECT, GROUP_PERMISSIONS_DELETE_SPECIFIC, GROUP_PERMISSIONS_INSERT));
+            } catch (SQLException e) {
+                storedNodes.invalidate(group);
+                groupRevisions.invalidate(group);
+                e.printStackTrace();
+                return false;
             }
 
+            storedNodes.put(group, new NodeSnapshot(ImmutableSet.copyOf(local), revision));
+            groupRevisions.record(group, revision);
             return true;
         } finally {
             group.getIoLock().unlock();
@@ -764,20 +947,27 @@ public class SQLBacking extends AbstractBacking {
         group.getIoLock().lock();
         try {
             try (Connection c = provider.getConnection()) {
-                try (PreparedStatement ps = c.prepareStatement(prefix.apply(GROUP_PERMISSIONS_DELETE))) {
-                    ps.setString(1, group.getName());
-                    ps.execute();
-                }
+                runTransaction(c, () -> {
+                    // the revision is kept, so a group later created with the same name can't reuse an old one
+                    incrementRevision(c, revisionId(group));
 
-                try (PreparedStatement ps = c.prepareStatement(prefix.apply(GROUP_DELETE))) {
-                    ps.setString(1, group.getName());
-                    ps.execute();
-                }
+                    try (PreparedStatement ps = c.prepareStatement(prefix.apply(GROUP_PERMISSIONS_DELETE))) {
+                        ps.setString(1, group.getName());
+                        ps.execute();
+                    }
 
+                    try (PreparedStatement ps = c.prepareStatement(prefix.apply(GROUP_DELETE))) {
+                        ps.setString(1, group.getName());
+                        ps.execute();
+                    }
+                    return null;
+                });
             } catch (SQLException e) {
                 e.printStackTrace();
                 return false;
             }
+            storedNodes.invalidate(group);
+            groupRevisions.invalidate(group);
             return true;
 
         } finally {
@@ -819,8 +1009,11 @@ public class SQLBacking extends AbstractBacking {
         try {
             AtomicBoolean exists = new AtomicBoolean(false);
             AtomicReference<String> groups = new AtomicReference<>(null);
+            Long revision;
 
             try (Connection c = provider.getConnection()) {
+                revision = readRevision(c, revisionId(track));
+
                 try (PreparedStatement ps = c.prepareStatement(prefix.apply(TRACK_SELECT))) {
                     ps.setString(1, track.getName());
                     try (ResultSet rs = ps.executeQuery()) {
@@ -838,19 +1031,24 @@ public class SQLBacking extends AbstractBacking {
             if (exists.get()) {
                 // Track exists, let's load.
                 track.setGroups(gson.fromJson(groups.get(), LIST_STRING_TYPE));
+                trackRevisions.record(track, revision);
                 return true;
             } else {
                 String json = gson.toJson(track.getGroups());
                 try (Connection c = provider.getConnection()) {
-                    try (PreparedStatement ps = c.prepareStatement(prefix.apply(TRACK_INSERT))) {
-                        ps.setString(1, track.getName());
-                        ps.setString(2, json);
-                        ps.execute();
-                    }
+                    revision = runTransaction(c, () -> {
+                        try (PreparedStatement ps = c.prepareStatement(prefix.apply(TRACK_INSERT))) {
+                            ps.setString(1, track.getName());
+                            ps.setString(2, json);
+                            ps.execute();
+                        }
+                        return incrementRevision(c, revisionId(track));
+                    });
                 } catch (SQLException e) {
                     e.printStackTrace();
                     return false;
                 }
+                trackRevisions.record(track, revision);
                 return true;
             }
 
@@ -865,7 +1063,10 @@ public class SQLBacking extends AbstractBacking {
         track.getIoLock().lock();
         try {
             AtomicReference<String> groups = new AtomicReference<>(null);
+            Long revision;
             try (Connection c = provider.getConnection()) {
+                revision = readRevision(c, revisionId(track));
+
                 try (PreparedStatement ps = c.prepareStatement(prefix.apply(TRACK_SELECT))) {
                     ps.setString(1, track.getName());
                     try (ResultSet rs = ps.executeQuery()) {
@@ -882,6 +1083,7 @@ public class SQLBacking extends AbstractBacking {
             }
 
             track.setGroups(gson.fromJson(groups.get(), LIST_STRING_TYPE));
+            trackRevisions.record(track, revision);
             return true;
 
         } finally {
@@ -891,7 +1093,7 @@ public class SQLBacking extends AbstractBacking {
 
     @Override
     public boolean loadAllTracks() {
-        List<String> tracks = new ArrayList<>();
+        Set<String> tracks = new HashSet<>();
         try (Connection c = provider.getConnection()) {
             try (PreparedStatement ps = c.prepareStatement(prefix.apply(TRACK_SELECT_ALL))) {
                 try (ResultSet rs = ps.executeQuery()) {
@@ -905,20 +1107,56 @@ public class SQLBacking extends AbstractBacking {
             return false;
         }
 
-        boolean success = true;
-        for (String t : tracks) {
-            if (!loadTrack(t)) {
-                success = false;
+        TrackManager tm = plugin.getTrackManager();
+        List<Track> loaded = tracks.stream().map(tm::getOrMake).collect(Collectors.toList());
+
+        // hold the locks while reading, so a save can't happen between the read and the data being applied
+        List<Lock> locks = lockAll(loaded, Track::getName, Track::getIoLock);
+        try {
+            Map<String, String> data = new HashMap<>();
+            Map<String, Long> revisions;
+            List<Track> toLoad;
+            try (Connection c = provider.getConnection()) {
+                revisions = checkRevisionsMaintained(c) ? readAllRevisions(c, TRACK_REVISION_PREFIX) : Collections.emptyMap();
+
+                toLoad = loaded.stream()
+                        .filter(t -> !trackRevisions.isUnchanged(t, revisions.get(revisionId(t))))
+                        .collect(Collectors.toList());
+
+                for (List<Track> batch : Iterables.partition(toLoad, LOAD_BATCH_SIZE)) {
+                    String placeholders = String.join(", ", Collections.nCopies(batch.size(), "?"));
+                    try (PreparedStatement ps = c.prepareStatement(prefix.apply(TRACK_SELECT_MULTIPLE).replace("{names}", placeholders))) {
+                        for (int i = 0; i < batch.size(); i++) {
+                            ps.setString(i + 1, batch.get(i).getName());
+                        }
+
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                data.put(rs.getString("name").toLowerCase(), rs.getString("groups"));
+                            }
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return false;
             }
-        }
 
-        if (success) {
-            TrackManager tm = plugin.getTrackManager();
-            tm.getAll().values().stream()
-                    .filter(t -> !tracks.contains(t.getName()))
-                    .forEach(tm::unload);
+            for (Track track : toLoad) {
+                String groups = data.get(track.getName());
+                if (groups != null) {
+                    track.setGroups(gson.fromJson(groups, LIST_STRING_TYPE));
+                    trackRevisions.record(track, revisions.get(revisionId(track)));
+                }
+            }
+        } finally {
+            unlockAll(locks);
         }
-        return success;
+
+        tm.getAll().values().stream()
+                .filter(t -> !tracks.contains(t.getName()))
+                .forEach(tm::unload);
+        return true;
     }
 
     @Override
@@ -926,16 +1164,22 @@ public class SQLBacking extends AbstractBacking {
         track.getIoLock().lock();
         try {
             String s = gson.toJson(track.getGroups());
+            long revision;
             try (Connection c = provider.getConnection()) {
-                try (PreparedStatement ps = c.prepareStatement(prefix.apply(TRACK_UPDATE))) {
-                    ps.setString(1, s);
-                    ps.setString(2, track.getName());
-                    ps.execute();
-                }
+                revision = runTransaction(c, () -> {
+                    try (PreparedStatement ps = c.prepareStatement(prefix.apply(TRACK_UPDATE))) {
+                        ps.setString(1, s);
+                        ps.setString(2, track.getName());
+                        ps.execute();
+                    }
+                    return incrementRevision(c, revisionId(track));
+                });
             } catch (SQLException e) {
+                trackRevisions.invalidate(track);
                 e.printStackTrace();
                 return false;
             }
+            trackRevisions.record(track, revision);
             return true;
         } finally {
             track.getIoLock().unlock();
@@ -947,14 +1191,21 @@ public class SQLBacking extends AbstractBacking {
         track.getIoLock().lock();
         try {
             try (Connection c = provider.getConnection()) {
-                try (PreparedStatement ps = c.prepareStatement(prefix.apply(TRACK_DELETE))) {
-                    ps.setString(1, track.getName());
-                    ps.execute();
-                }
+                runTransaction(c, () -> {
+                    // the revision is kept, so a track later created with the same name can't reuse an old one
+                    incrementRevision(c, revisionId(track));
+
+                    try (PreparedStatement ps = c.prepareStatement(prefix.apply(TRACK_DELETE))) {
+                        ps.setString(1, track.getName());
+                        ps.execute();
+                    }
+                    return null;
+                });
             } catch (SQLException e) {
                 e.printStackTrace();
                 return false;
             }
+            trackRevisions.invalidate(track);
         } finally {
             track.getIoLock().unlock();
         }
@@ -1070,6 +1321,293 @@ public class SQLBacking extends AbstractBacking {
         return name.get();
     }
 
+    /**
+     * Runs the given action as a single transaction, if the provider's connections can be used for one.
+     *
+     * @param c the connection to run the action on
+     * @param action the action
+     * @return the result of the action
+     * @throws SQLException if the action failed, after the transaction has been rolled back
+     */
+    private <T> T runTransaction(Connection c, SQLAction<T> action) throws SQLException {
+        if (!provider.isTransactional()) {
+            return action.run();
+        }
+
+        c.setAutoCommit(false);
+        try {
+            T result = action.run();
+            c.commit();
+            return result;
+        } catch (SQLException e) {
+            c.rollback();
+            throw e;
+        } finally {
+            c.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Writes the differences between the given nodes and those stored for the holder, and increments the
+     * holder's revision.
+     *
+     * <p>The last known stored nodes are only used if every server using the database is known to maintain
+     * revisions, and the revision can be incremented from the one they were read at, meaning nobody else has
+     * written to the holder since. Both the check and the increment happen in a single statement. Otherwise, the
+     * revision is incremented regardless, and the stored nodes are read back within the transaction. The increment
+     * locks the revision row until the transaction ends, so concurrent saves of the same holder are applied one
+     * after the other.</p>
+     *
+     * @param c the connection to use
+     * @param holder the holder being saved
+     * @param id the identifier of the holder in the permissions table
+     * @param local the nodes the holder currently has
+     * @param selectQuery the query to read the stored nodes
+     * @param deleteQuery the query to remove a single node
+     * @param insertQuery the query to add a single node
+     * @return the new revision of the holder
+     * @throws SQLException if an error occurred
+     */
+    private long writeNodes(Connection c, PermissionHolder holder, String id, Set<NodeModel> local, String selectQuery, String deleteQuery, String insertQuery) throws SQLException {
+        NodeSnapshot snapshot = storedNodes.getIfPresent(holder);
+
+        long revision;
+        Set<NodeModel> remote;
+        if (snapshot != null && snapshot.getRevision() != null && checkRevisionsMaintained(c) && incrementRevision(c, revisionId(holder), snapshot.getRevision())) {
+            revision = snapshot.getRevision() + 1;
+            remote = snapshot.getNodes();
+        } else {
+            revision = incrementRevision(c, revisionId(holder));
+            remote = readNodes(c, selectQuery, id);
+        }
+
+        Map.Entry<Set<NodeModel>, Set<NodeModel>> diff = compareSets(local, remote);
+        if (!updateNodes(c, deleteQuery, id, diff.getValue())) {
+            // servers running older versions don't increment revisions. their changes can still be noticed when
+            // one of the rows expected to be removed is missing, so work out the changes again from what is there.
+            diff = compareSets(local, readNodes(c, selectQuery, id));
+            updateNodes(c, deleteQuery, id, diff.getValue());
+        }
+        updateNodes(c, insertQuery, id, diff.getKey());
+        return revision;
+    }
+
+    private Set<NodeModel> readNodes(Connection c, String query, String id) throws SQLException {
+        Set<NodeModel> nodes = new HashSet<>();
+        try (PreparedStatement ps = c.prepareStatement(prefix.apply(query))) {
+            ps.setString(1, id);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String permission = rs.getString("permission");
+                    boolean value = rs.getBoolean("value");
+                    String server = rs.getString("server");
+                    String world = rs.getString("world");
+                    long expiry = rs.getLong("expiry");
+                    String contexts = rs.getString("contexts");
+                    nodes.add(NodeModel.deserialize(permission, value, server, world, expiry, contexts));
+                }
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Runs a batch of node inserts or deletes
+     *
+     * @return false if any of the statements didn't affect a row
+     */
+    private boolean updateNodes(Connection c, String query, String id, Set<NodeModel> nodes) throws SQLException {
+        if (nodes.isEmpty()) {
+            return true;
+        }
+
+        int[] results;
+        try (PreparedStatement ps = c.prepareStatement(prefix.apply(query))) {
+            for (NodeModel nd : nodes) {
+                ps.setString(1, id);
+                ps.setString(2, nd.getPermission());
+                ps.setBoolean(3, nd.isValue());
+                ps.setString(4, nd.getServer());
+                ps.setString(5, nd.getWorld());
+                ps.setLong(6, nd.getExpiry());
+                ps.setString(7, nd.serializeContext());
+                ps.addBatch();
+            }
+            results = ps.executeBatch();
+        }
+
+        for (int result : results) {
+            if (result == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Increments the revision of a stored object, creating it if it doesn't exist yet.
+     *
+     * @param c the connection to use
+     * @param id the revision id
+     * @return the new revision
+     * @throws SQLException if an error occurred
+     */
+    private long incrementRevision(Connection c, String id) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(prefix.apply(REVISION_INCREMENT))) {
+            ps.setString(1, id);
+            if (ps.executeUpdate() == 0) {
+                try (PreparedStatement insert = c.prepareStatement(prefix.apply(getRevisionInsertQuery()))) {
+                    insert.setString(1, id);
+                    insert.execute();
+                }
+                ps.executeUpdate();
+            }
+        }
+
+        Long revision = readRevision(c, id);
+        if (revision == null) {
+            throw new SQLException("Unable to create revision for " + id);
+        }
+        return revision;
+    }
+
+    /**
+     * Gets if every server using the database is known to increment revisions when saving.
+     *
+     * <p>Older versions save without touching the revisions table, so until the marker row is present, their
+     * changes can only be noticed by reading the data itself. The marker is written when a database is created,
+     * and can be added manually once every server using an existing database has been updated.</p>
+     *
+     * @param c the connection to use
+     * @return true if revisions can be used to skip reading unchanged data
+     * @throws SQLException if an error occurred
+     */
+    private boolean checkRevisionsMaintained(Connection c) throws SQLException {
+        boolean maintained = readRevision(c, REVISIONS_MARKER_ID) != null;
+        if (maintained != revisionsMaintained) {
+            revisionsMaintained = maintained;
+
+            // anything recorded before may have been changed by an older version without its revision moving
+            userRevisions.invalidateAll();
+            groupRevisions.invalidateAll();
+            trackRevisions.invalidateAll();
+            storedNodes.invalidateAll();
+        }
+        return maintained;
+    }
+
+    /**
+     * Increments the revision of a stored object, only if it is currently at the expected revision.
+     *
+     * @param c the connection to use
+     * @param id the revision id
+     * @param expected the revision the object is expected to be at
+     * @return true if the revision was incremented
+     * @throws SQLException if an error occurred
+     */
+    private boolean incrementRevision(Connection c, String id, long expected) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(prefix.apply(REVISION_INCREMENT_IF))) {
+            ps.setString(1, id);
+            ps.setLong(2, expected);
+            return ps.executeUpdate() != 0;
+        }
+    }
+
+    private void incrementAllRevisions(Connection c, String revisionPrefix) {
+        try (PreparedStatement ps = c.prepareStatement(prefix.apply(REVISION_INCREMENT_ALL))) {
+            ps.setString(1, revisionPrefix + "%");
+            ps.execute();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private Long readRevision(Connection c, String id) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(prefix.apply(REVISION_SELECT))) {
+            ps.setString(1, id);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong("revision") : null;
+            }
+        }
+    }
+
+    private Map<String, Long> readRevisions(Connection c, List<String> ids) throws SQLException {
+        Map<String, Long> revisions = new HashMap<>();
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        try (PreparedStatement ps = c.prepareStatement(prefix.apply(REVISION_SELECT_MULTIPLE).replace("{ids}", placeholders))) {
+            for (int i = 0; i < ids.size(); i++) {
+                ps.setString(i + 1, ids.get(i));
+            }
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    revisions.put(rs.getString("id"), rs.getLong("revision"));
+                }
+            }
+        }
+        return revisions;
+    }
+
+    private Map<String, Long> readAllRevisions(Connection c, String revisionPrefix) throws SQLException {
+        Map<String, Long> revisions = new HashMap<>();
+        try (PreparedStatement ps = c.prepareStatement(prefix.apply(REVISION_SELECT_ALL))) {
+            ps.setString(1, revisionPrefix + "%");
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    revisions.put(rs.getString("id"), rs.getLong("revision"));
+                }
+            }
+        }
+        return revisions;
+    }
+
+    private String getRevisionInsertQuery() {
+        switch (provider.getName()) {
+            case "H2":
+                return H2_REVISION_INSERT;
+            case "SQLite":
+                return SQLITE_REVISION_INSERT;
+            case "PostgreSQL":
+                return POSTGRESQL_REVISION_INSERT;
+            default:
+                return MYSQL_REVISION_INSERT;
+        }
+    }
+
+    private static String revisionId(Track track) {
+        return TRACK_REVISION_PREFIX + track.getName().toLowerCase();
+    }
+
+    private static String revisionId(PermissionHolder holder) {
+        if (holder instanceof User) {
+            return USER_REVISION_PREFIX + ((User) holder).getUuid().toString();
+        }
+        return GROUP_REVISION_PREFIX + holder.getObjectName().toLowerCase();
+    }
+
+    @FunctionalInterface
+    private interface SQLAction<T> {
+        T run() throws SQLException;
+    }
+
+    /**
+     * The nodes a holder was last known to have in storage, and the revision they were read or written at.
+     */
+    @Getter
+    @AllArgsConstructor
+    private static final class NodeSnapshot {
+        private final Set<NodeModel> nodes;
+
+        /**
+         * The revision of the holder, or null if it had none in storage. Snapshots without a revision are never
+         * trusted when saving.
+         */
+        private final Long revision;
+    }
+
     /**
      * Compares two sets
      * @param local the local set
@@ -57,6 +57,12 @@ abstract class FlatfileProvider extends SQLProvider {
         }
     }
 
+    @Override
+    public boolean isTransactional() {
+        // the same connection is shared between all callers
+        return false;
+    }
+
     @Override
     public WrappedConnection getConnection() throws SQLException {
         lock.lock();
@@ -42,4 +42,14 @@ public abstract class SQLProvider {
 
     public abstract WrappedConnection getConnection() throws SQLException;
 
+    /**
+     * Gets if each connection returned by this provider is only used by a single caller at a time, and can
+     * therefore be used to run a transaction.
+     *
+     * @return if transactions are supported
+     */
+    public boolean isTransactional() {
+        return true;
+    }
+
 }
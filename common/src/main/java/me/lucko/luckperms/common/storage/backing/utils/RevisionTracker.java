@@ -0,0 +1,99 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage.backing.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.function.Function;
+
+/**
+ * Tracks the revision each object was last loaded or saved at, so a sync can skip objects which haven't
+ * changed since, either in storage or locally.
+ *
+ * <p>Objects are tracked by identity, and forgotten once they are no longer referenced elsewhere.</p>
+ *
+ * @param <T> the object type
+ */
+@RequiredArgsConstructor
+public class RevisionTracker<T> {
+
+    /**
+     * Gets the local state of an object, which is compared using equals to detect local changes
+     */
+    private final Function<T, Object> stateFunction;
+
+    private final Cache<T, Entry> entries = Caffeine.newBuilder().weakKeys().build();
+
+    /**
+     * Records that an object was loaded or saved at the given revision. Must be called after the object's local
+     * state has been updated.
+     *
+     * @param object the object
+     * @param revision the revision in storage, or null if the object has none
+     */
+    public void record(T object, Long revision) {
+        if (revision == null) {
+            entries.invalidate(object);
+        } else {
+            entries.put(object, new Entry(revision, stateFunction.apply(object)));
+        }
+    }
+
+    public void invalidate(T object) {
+        entries.invalidate(object);
+    }
+
+    public void invalidateAll() {
+        entries.invalidateAll();
+    }
+
+    /**
+     * Gets if an object can be skipped when syncing.
+     *
+     * @param object the object
+     * @param revision the object's current revision in storage, or null if it has none
+     * @return true if the object is at the same revision, and hasn't been changed locally since
+     */
+    public boolean isUnchanged(T object, Long revision) {
+        if (revision == null) {
+            return false;
+        }
+
+        Entry entry = entries.getIfPresent(object);
+        return entry != null && entry.revision == revision && entry.state.equals(stateFunction.apply(object));
+    }
+
+    @AllArgsConstructor
+    private static final class Entry {
+        private final long revision;
+        private final Object state;
+    }
+
+}
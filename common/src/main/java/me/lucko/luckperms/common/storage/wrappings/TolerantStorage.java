@@ -41,6 +41,7 @@ import me.lucko.luckperms.common.core.model.User;
 import me.lucko.luckperms.common.data.Log;
 import me.lucko.luckperms.common.storage.Storage;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -120,6 +121,16 @@ public class TolerantStorage implements Storage {
         }
     }
 
+    @Override
+    public CompletableFuture<Boolean> loadUsers(Collection<UUID> uuids) {
+        phaser.register();
+        try {
+            return backing.loadUsers(uuids);
+        } finally {
+            phaser.arriveAndDeregister();
+        }
+    }
+
     @Override
     public CompletableFuture<Boolean> saveUser(User user) {
         phaser.register();
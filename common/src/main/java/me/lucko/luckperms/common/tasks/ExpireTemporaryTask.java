@@ -37,25 +37,18 @@ public class ExpireTemporaryTask implements Runnable {
 
     @Override
     public void run() {
-        boolean groupChanges = false;
+        // changes to groups are propagated to their inheritors in memory
         for (Group group : plugin.getGroupManager().getAll().values()) {
             if (group.auditTemporaryPermissions()) {
                 plugin.getStorage().saveGroup(group);
-                groupChanges = true;
             }
         }
 
         for (User user : plugin.getUserManager().getAll().values()) {
             if (user.auditTemporaryPermissions()) {
                 plugin.getStorage().saveUser(user);
-                if (!groupChanges) {
-                    user.getRefreshBuffer().request();
-                }
+                user.getRefreshBuffer().request();
             }
         }
-
-        if (groupChanges) {
-            plugin.getUpdateTaskBuffer().request();
-        }
     }
 }
\ No newline at end of file
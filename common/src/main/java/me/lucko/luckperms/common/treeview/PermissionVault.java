@@ -33,6 +33,8 @@ import com.google.common.base.Splitter;
 
 import java.util.List;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 
@@ -46,12 +48,17 @@ public class PermissionVault implements Runnable {
     private final TreeNode rootNode;
     private final Queue<String> queue;
 
+    // permissions which have already been offered. only previously unseen permissions are queued for insertion,
+    // so the steady state cost of an offer is a single set lookup.
+    private final Set<String> known;
+
     @Setter
-    private boolean shutdown = false;
+    private volatile boolean shutdown = false;
 
     public PermissionVault(Executor executor) {
         rootNode = new TreeNode();
         queue = new ConcurrentLinkedQueue<>();
+        known = ConcurrentHashMap.newKeySet();
 
         executor.execute(this);
     }
@@ -78,7 +85,10 @@ public class PermissionVault implements Runnable {
     }
 
     public void offer(@NonNull String permission) {
-        queue.offer(permission);
+        // check first, as adding a key which is already present still locks its bin
+        if (!known.contains(permission) && known.add(permission)) {
+            queue.offer(permission);
+        }
     }
 
     public int getSize() {
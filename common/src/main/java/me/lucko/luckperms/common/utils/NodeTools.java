@@ -28,64 +28,44 @@ package me.lucko.luckperms.common.utils;
 import lombok.experimental.UtilityClass;
 
 import me.lucko.luckperms.api.Node;
+import me.lucko.luckperms.common.core.NodeEquivalenceKey;
 
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
 
 @UtilityClass
 public class NodeTools {
 
     public static <T extends Node> void removeAlmostEqual(Iterator<T> it) {
-        List<T> alreadyIn = new ArrayList<>();
-
-        iter:
-        while (it.hasNext()) {
-            T next = it.next();
-            for (T n : alreadyIn) {
-                if (next.almostEquals(n)) {
-                    it.remove();
-                    continue iter;
-                }
-            }
-
-            alreadyIn.add(next);
-        }
+        removeEquivalent(it, NodeEquivalenceKey::almostEquals);
     }
 
     public static <T extends Node> void removeIgnoreValue(Iterator<T> it) {
-        List<T> alreadyIn = new ArrayList<>();
-
-        iter:
-        while (it.hasNext()) {
-            T next = it.next();
-            for (T n : alreadyIn) {
-                if (next.equalsIgnoringValue(n)) {
-                    it.remove();
-                    continue iter;
-                }
-            }
-
-            alreadyIn.add(next);
-        }
+        removeEquivalent(it, NodeEquivalenceKey::ignoringValue);
     }
 
     public static <T extends Node> void removeIgnoreValueOrTemp(Iterator<T> it) {
-        List<T> alreadyIn = new ArrayList<>();
+        removeEquivalent(it, NodeEquivalenceKey::ignoringValueOrTemp);
+    }
+
+    /**
+     * Removes nodes which share an equivalence key with a node earlier in the iteration.
+     *
+     * @param it the iterator
+     * @param keyFunction the function used to obtain a key for each node
+     * @param <T> the node type
+     */
+    private static <T extends Node> void removeEquivalent(Iterator<T> it, Function<Node, NodeEquivalenceKey> keyFunction) {
+        Set<NodeEquivalenceKey> alreadyIn = new HashSet<>();
 
-        iter:
         while (it.hasNext()) {
             T next = it.next();
-            for (T n : alreadyIn) {
-                if (next.equalsIgnoringValueOrTemp(n)) {
-                    it.remove();
-                    continue iter;
-                }
-            }
 
-            alreadyIn.add(next);
+            if (!alreadyIn.add(keyFunction.apply(next))) {
+                it.remove();
+            }
         }
     }
 
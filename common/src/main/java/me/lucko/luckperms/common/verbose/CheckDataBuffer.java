@@ -0,0 +1,115 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.verbose;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free ring buffer for {@link CheckData}, written to by many producers and read by one consumer.
+ *
+ * <p>Each slot carries a sequence number, which tells producers whether the slot is free to be written, and the
+ * consumer whether it has been published. Producers only contend on a compare-and-set of the tail position, and a
+ * full buffer rejects new data instead of blocking.</p>
+ *
+ * <p>{@link #poll()} must only be called by one thread at a time.</p>
+ */
+final class CheckDataBuffer {
+    private final int mask;
+    private final AtomicReferenceArray<CheckData> slots;
+    private final AtomicLongArray sequences;
+
+    // the next position to be claimed by a producer
+    private final AtomicLong tail = new AtomicLong(0);
+
+    // the next position to be read by the consumer
+    private long head = 0;
+
+    CheckDataBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds data to the buffer
+     *
+     * @param data the data to add
+     * @return true if the data was added, false if the buffer was full
+     */
+    boolean offer(CheckData data) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                // the slot is free, try to claim it
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.lazySet(index, data);
+                    // publishes the slot to the consumer
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // the slot still holds data from the previous lap, which hasn't been read yet
+                return false;
+            } else {
+                // another producer claimed the slot first
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest data from the buffer
+     *
+     * @return the data, or null if the buffer is empty
+     */
+    CheckData poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            // nothing has been published to the slot yet
+            return null;
+        }
+
+        CheckData data = slots.get(index);
+        slots.lazySet(index, null);
+        // frees the slot for the next lap
+        sequences.set(index, head + mask + 1);
+        head++;
+        return data;
+    }
+}
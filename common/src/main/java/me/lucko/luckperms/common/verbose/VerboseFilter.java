@@ -0,0 +1,250 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.verbose;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+
+import me.lucko.luckperms.api.Tristate;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.function.BiPredicate;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled verbose filter.
+ *
+ * <p>Filters are boolean expressions made up of terms, combined using <code>&amp;</code> (and), <code>|</code> (or),
+ * <code>!</code> (not) and parentheses. A term matches a check if it equals the name of the object being checked,
+ * is a prefix of the permission being checked, or equals the result of the check, ignoring case. Terms containing
+ * <code>*</code> are globs, which match the whole name or permission, where <code>*</code> matches any sequence of
+ * characters.</p>
+ *
+ * <p>Expressions are parsed once. The terms matching each recently seen permission and object name are memoized,
+ * so evaluating a check only has to combine the memoized results. Instances are not thread safe.</p>
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class VerboseFilter {
+    private static final int MEMO_SIZE = 1000;
+
+    private static final VerboseFilter ACCEPT_ALL = new VerboseFilter(null, null);
+
+    /**
+     * Parses a filter expression
+     *
+     * @param filter the filter
+     * @return the compiled filter
+     * @throws IllegalArgumentException if the filter is not a valid expression
+     */
+    public static VerboseFilter parse(String filter) throws IllegalArgumentException {
+        List<String> tokens = new ArrayList<>();
+        StringTokenizer tokenizer = new StringTokenizer(filter, " |&()!", true);
+        while (tokenizer.hasMoreTokens()) {
+            String token = tokenizer.nextToken();
+            if (!token.equals(" ")) {
+                tokens.add(token);
+            }
+        }
+
+        if (tokens.isEmpty()) {
+            return ACCEPT_ALL;
+        }
+
+        Parser parser = new Parser(tokens);
+        Expression expression = parser.parseOr();
+        if (parser.index != tokens.size()) {
+            throw new IllegalArgumentException("Unexpected token '" + tokens.get(parser.index) + "' in filter: " + filter);
+        }
+
+        return new VerboseFilter(expression, parser.terms.toArray(new Term[parser.terms.size()]));
+    }
+
+    // null if the filter accepts everything
+    private final Expression expression;
+    private final Term[] terms;
+
+    // the terms which match each recently seen permission / object name, indexed by the position of the term
+    private final Map<String, boolean[]> nodeMatches = new MemoMap<>();
+    private final Map<String, boolean[]> checkedMatches = new MemoMap<>();
+    private final Map<Tristate, boolean[]> valueMatches = new EnumMap<>(Tristate.class);
+
+    /**
+     * Evaluates the filter against a check
+     *
+     * @param data the check
+     * @return true if the check matches the filter
+     */
+    public boolean evaluate(CheckData data) {
+        if (expression == null) {
+            return true;
+        }
+
+        boolean[] checked = checkedMatches.computeIfAbsent(data.getChecked(), s -> match(Term::matchesChecked, s));
+        boolean[] node = nodeMatches.computeIfAbsent(data.getNode(), s -> match(Term::matchesNode, s));
+        boolean[] value = valueMatches.computeIfAbsent(data.getValue(), v -> match(Term::matchesValue, v));
+        return expression.evaluate(checked, node, value);
+    }
+
+    private <T> boolean[] match(BiPredicate<Term, T> predicate, T input) {
+        boolean[] matches = new boolean[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            matches[i] = predicate.test(terms[i], input);
+        }
+        return matches;
+    }
+
+    /**
+     * A map which evicts its least recently accessed entry once it holds more than {@link #MEMO_SIZE} entries
+     */
+    private static final class MemoMap<K, V> extends LinkedHashMap<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        private MemoMap() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > MEMO_SIZE;
+        }
+    }
+
+    private interface Expression {
+        boolean evaluate(boolean[] checked, boolean[] node, boolean[] value);
+    }
+
+    private static final class Term {
+        private final String token;
+
+        // null if the term isn't a glob
+        private final Pattern glob;
+
+        private Term(String token) {
+            this.token = token;
+
+            if (token.indexOf('*') == -1) {
+                this.glob = null;
+            } else {
+                String[] parts = token.split("\\*", -1);
+                StringBuilder regex = new StringBuilder();
+                for (int i = 0; i < parts.length; i++) {
+                    if (i != 0) {
+                        regex.append(".*");
+                    }
+                    if (!parts[i].isEmpty()) {
+                        regex.append(Pattern.quote(parts[i]));
+                    }
+                }
+                this.glob = Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+            }
+        }
+
+        private boolean matchesChecked(String checked) {
+            return glob != null ? glob.matcher(checked).matches() : checked.equalsIgnoreCase(token);
+        }
+
+        private boolean matchesNode(String node) {
+            return glob != null ? glob.matcher(node).matches() : node.regionMatches(true, 0, token, 0, token.length());
+        }
+
+        private boolean matchesValue(Tristate value) {
+            return value.name().equalsIgnoreCase(token);
+        }
+    }
+
+    private static final class Parser {
+        private final List<String> tokens;
+        private final List<Term> terms = new ArrayList<>();
+        private int index = 0;
+
+        private Parser(List<String> tokens) {
+            this.tokens = tokens;
+        }
+
+        private String peek() {
+            return index < tokens.size() ? tokens.get(index) : null;
+        }
+
+        private String next() {
+            String token = peek();
+            if (token == null) {
+                throw new IllegalArgumentException("Unexpected end of filter");
+            }
+            index++;
+            return token;
+        }
+
+        private Expression parseOr() {
+            Expression left = parseAnd();
+            while ("|".equals(peek())) {
+                next();
+                Expression l = left;
+                Expression r = parseAnd();
+                left = (c, n, v) -> l.evaluate(c, n, v) || r.evaluate(c, n, v);
+            }
+            return left;
+        }
+
+        private Expression parseAnd() {
+            Expression left = parseUnary();
+            while ("&".equals(peek())) {
+                next();
+                Expression l = left;
+                Expression r = parseUnary();
+                left = (c, n, v) -> l.evaluate(c, n, v) && r.evaluate(c, n, v);
+            }
+            return left;
+        }
+
+        private Expression parseUnary() {
+            String token = next();
+            switch (token) {
+                case "!":
+                    Expression negated = parseUnary();
+                    return (c, n, v) -> !negated.evaluate(c, n, v);
+                case "(":
+                    Expression inner = parseOr();
+                    if (!")".equals(next())) {
+                        throw new IllegalArgumentException("Expected ')'");
+                    }
+                    return inner;
+                case ")":
+                case "&":
+                case "|":
+                    throw new IllegalArgumentException("Unexpected token '" + token + "'");
+                default:
+                    int i = terms.size();
+                    terms.add(new Term(token));
+                    return (c, n, v) -> c[i] || n[i] || v[i];
+            }
+        }
+    }
+}
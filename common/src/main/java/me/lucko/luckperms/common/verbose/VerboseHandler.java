@@ -31,26 +31,47 @@ import me.lucko.luckperms.api.Tristate;
 import me.lucko.luckperms.common.commands.sender.Sender;
 
 import java.util.Map;
-import java.util.Queue;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Accepts permission check data and passes it on to registered {@link VerboseListener}s.
+ *
+ * <p>Checks are buffered in a fixed size, lock-free ring buffer, and handed to listeners by a dedicated consumer. If
+ * the consumer falls behind, new checks are dropped and counted, rather than the buffer growing without limit.</p>
+ */
 public class VerboseHandler implements Runnable {
+    private static final int BUFFER_SIZE = 8192;
+
+    // how long the consumer waits before checking an empty buffer again
+    private static final long LISTENING_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long IDLE_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
     private final String pluginVersion;
 
     private final Map<UUID, VerboseListener> listeners;
-    private final Queue<CheckData> queue;
-    private boolean listening = false;
+    private final CheckDataBuffer buffer;
+
+    // the thread running the consumer, woken when a listener is registered
+    private volatile Thread consumer = null;
+
+    // checked on every permission lookup, so kept as a single volatile read
+    private volatile boolean listening = false;
+
+    // checks dropped because the buffer was full, and not yet reported to the listeners
+    private final AtomicLong dropped = new AtomicLong(0);
 
     @Setter
-    private boolean shutdown = false;
+    private volatile boolean shutdown = false;
 
     public VerboseHandler(Executor executor, String pluginVersion) {
         this.pluginVersion = "v" + pluginVersion;
         listeners = new ConcurrentHashMap<>();
-        queue = new ConcurrentLinkedQueue<>();
+        buffer = new CheckDataBuffer(BUFFER_SIZE);
 
         executor.execute(this);
     }
@@ -60,12 +81,19 @@ public class VerboseHandler implements Runnable {
             return;
         }
 
-        queue.offer(new CheckData(checked, node, value));
+        if (!buffer.offer(new CheckData(checked, node, value))) {
+            dropped.incrementAndGet();
+        }
     }
 
     public void register(Sender sender, String filter, boolean notify) {
-        listening = true;
         listeners.put(sender.getUuid(), new VerboseListener(pluginVersion, sender, filter, notify));
+        listening = true;
+
+        Thread consumer = this.consumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
     }
 
     public VerboseListener unregister(UUID uuid) {
@@ -79,24 +107,40 @@ public class VerboseHandler implements Runnable {
 
     @Override
     public void run() {
-        while (true) {
-            flush();
-
-            if (shutdown) {
-                return;
+        consumer = Thread.currentThread();
+        while (!shutdown) {
+            if (!flush()) {
+                // producers don't signal new data, so wait a little before checking again
+                LockSupport.parkNanos(this, listening ? LISTENING_WAIT_NANOS : IDLE_WAIT_NANOS);
             }
-
-            try {
-                Thread.sleep(200);
-            } catch (InterruptedException ignored) {}
         }
     }
 
-    public synchronized void flush() {
-        for (CheckData e; (e = queue.poll()) != null; ) {
+    /**
+     * Passes all buffered data to the listeners
+     *
+     * @return true if any data was buffered
+     */
+    public synchronized boolean flush() {
+        // the buffer only supports a single consumer at a time, which the lock guarantees
+        boolean work = false;
+        for (CheckData e; (e = buffer.poll()) != null; ) {
+            accept(e);
+            work = true;
+        }
+
+        long dropped = this.dropped.getAndSet(0);
+        if (dropped != 0) {
             for (VerboseListener listener : listeners.values()) {
-                listener.acceptData(e);
+                listener.acceptDropped(dropped);
             }
         }
+        return work;
+    }
+
+    private void accept(CheckData data) {
+        for (VerboseListener listener : listeners.values()) {
+            listener.acceptData(data);
+        }
     }
 }
@@ -25,27 +25,21 @@
 
 package me.lucko.luckperms.common.verbose;
 
-import lombok.RequiredArgsConstructor;
-
 import com.google.common.collect.ImmutableList;
 
 import me.lucko.luckperms.common.commands.sender.Sender;
 import me.lucko.luckperms.common.constants.Message;
 import me.lucko.luckperms.common.utils.DateUtil;
 import me.lucko.luckperms.common.utils.PasteUtils;
-import me.lucko.luckperms.common.utils.Scripting;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.StringTokenizer;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
-import javax.script.ScriptEngine;
-
-@RequiredArgsConstructor
 public class VerboseListener {
     private static final int DATA_TRUNCATION = 3500;
     private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss z");
@@ -56,14 +50,24 @@ public class VerboseListener {
     private final Sender holder;
     private final String filter;
     private final boolean notify;
+    private final VerboseFilter compiledFilter;
 
     private final AtomicInteger counter = new AtomicInteger(0);
     private final AtomicInteger matchedCounter = new AtomicInteger(0);
+    private final AtomicLong droppedCounter = new AtomicLong(0);
     private final List<CheckData> results = new ArrayList<>();
 
+    public VerboseListener(String pluginVersion, Sender holder, String filter, boolean notify) {
+        this.pluginVersion = pluginVersion;
+        this.holder = holder;
+        this.filter = filter;
+        this.notify = notify;
+        this.compiledFilter = VerboseFilter.parse(filter);
+    }
+
     public void acceptData(CheckData data) {
         counter.incrementAndGet();
-        if (!matches(data, filter)) {
+        if (!compiledFilter.evaluate(data)) {
             return;
         }
         matchedCounter.incrementAndGet();
@@ -77,88 +81,24 @@ public class VerboseListener {
         }
     }
 
-    private static boolean matches(CheckData data, String filter) {
-        if (filter.equals("")) {
-            return true;
-        }
-
-        ScriptEngine engine = Scripting.getScriptEngine();
-        if (engine == null) {
-            return false;
-        }
-
-        StringTokenizer tokenizer = new StringTokenizer(filter, " |&()!", true);
-        StringBuilder expression = new StringBuilder();
-
-        while (tokenizer.hasMoreTokens()) {
-            String token = tokenizer.nextToken();
-            if (!isDelim(token)) {
-                boolean b = data.getChecked().equalsIgnoreCase(token) ||
-                        data.getNode().toLowerCase().startsWith(token.toLowerCase()) ||
-                        data.getValue().name().equalsIgnoreCase(token);
-
-                token = "" + b;
-            }
-
-            expression.append(token);
-        }
-
-        try {
-            String exp = expression.toString().replace("&", "&&").replace("|", "||");
-            String result = engine.eval(exp).toString();
-            if (!result.equals("true") && !result.equals("false")) {
-                throw new IllegalArgumentException(exp + " - " + result);
-            }
-
-            return Boolean.parseBoolean(result);
-
-        } catch (Throwable t) {
-            t.printStackTrace();
-        }
-
-        return false;
+    /**
+     * Records checks which were dropped before reaching this listener, as the verbose buffer was full.
+     *
+     * @param count the number of dropped checks
+     */
+    public void acceptDropped(long count) {
+        droppedCounter.addAndGet(count);
     }
 
     public static boolean isValidFilter(String filter) {
-        if (filter.equals("")) {
-            return true;
-        }
-
-        ScriptEngine engine = Scripting.getScriptEngine();
-        if (engine == null) {
-            return false;
-        }
-
-        StringTokenizer tokenizer = new StringTokenizer(filter, " |&()!", true);
-        StringBuilder expression = new StringBuilder();
-
-        while (tokenizer.hasMoreTokens()) {
-            String token = tokenizer.nextToken();
-            if (!isDelim(token)) {
-                token = "true"; // dummy result
-            }
-
-            expression.append(token);
-        }
-
         try {
-            String exp = expression.toString().replace("&", "&&").replace("|", "||");
-            String result = engine.eval(exp).toString();
-            if (!result.equals("true") && !result.equals("false")) {
-                throw new IllegalArgumentException(exp + " - " + result);
-            }
-
+            VerboseFilter.parse(filter);
             return true;
-
-        } catch (Throwable t) {
+        } catch (IllegalArgumentException e) {
             return false;
         }
     }
 
-    private static boolean isDelim(String token) {
-        return token.equals(" ") || token.equals("|") || token.equals("&") || token.equals("(") || token.equals(")") || token.equals("!");
-    }
-
     public String uploadPasteData() {
         long now = System.currentTimeMillis();
         String startDate = DATE_FORMAT.format(new Date(startTime));
@@ -187,6 +127,11 @@ public class VerboseListener {
                 .add("| Filter | " + filter + " |")
                 .add("");
 
+        if (droppedCounter.get() != 0) {
+            output.add("**WARN:** " + droppedCounter.get() + " checks were dropped as they could not be processed fast enough, and are not included in the counts above.");
+            output.add("");
+        }
+
         if (matchedCounter.get() > results.size()) {
             output.add("**WARN:** Result set exceeded max size of " + DATA_TRUNCATION + ". The output below was truncated to " + DATA_TRUNCATION + " entries.");
             output.add("");
@@ -0,0 +1,7 @@
+-- LuckPerms MariaDB Schema - Revisions
+
+CREATE TABLE `{prefix}revisions` (
+  `id`       VARCHAR(64) NOT NULL,
+  `revision` BIGINT      NOT NULL,
+  PRIMARY KEY (`id`)
+) DEFAULT CHARSET = utf8;
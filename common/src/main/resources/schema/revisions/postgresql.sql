@@ -0,0 +1,6 @@
+-- LuckPerms PostgreSQL Schema - Revisions
+
+CREATE TABLE "{prefix}revisions" (
+  "id"       VARCHAR(64) PRIMARY KEY NOT NULL,
+  "revision" BIGINT                  NOT NULL
+);
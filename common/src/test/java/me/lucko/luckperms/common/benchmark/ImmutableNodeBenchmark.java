@@ -0,0 +1,147 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.benchmark;
+
+import me.lucko.luckperms.api.Node;
+import me.lucko.luckperms.common.core.NodeFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jol.info.GraphLayout;
+import org.openjdk.jol.vm.VM;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of building nodes, and the heap they retain.
+ *
+ * <p>The footprint is measured with JOL before the JMH benchmarks run. Nodes are a mix of plain permissions, group,
+ * meta and prefix nodes, with and without a server and world, and every node is distinct, so the interner never
+ * returns an existing instance. Run it against a commit and its parent to compare them.</p>
+ *
+ * <p>Run with:</p>
+ * <pre>
+ * mvn -P benchmarks -pl common -am install
+ * mvn -P benchmarks -pl common org.codehaus.mojo:exec-maven-plugin:1.6.0:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=me.lucko.luckperms.common.benchmark.ImmutableNodeBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ImmutableNodeBenchmark {
+    private static final int FOOTPRINT_NODES = 100000;
+    private static final int LOOKUP_NODES = 1000;
+
+    public static void main(String[] args) throws RunnerException {
+        printFootprint();
+        new Runner(new OptionsBuilder().include(ImmutableNodeBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private static void printFootprint() {
+        Node[] nodes = new Node[FOOTPRINT_NODES];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = buildNode(i);
+        }
+
+        // the array holding the nodes isn't part of their footprint
+        long total = GraphLayout.parseInstance((Object) nodes).totalSize() - VM.current().sizeOf(nodes);
+        System.out.println("Nodes: " + FOOTPRINT_NODES);
+        System.out.println("Retained per node: " + (total / FOOTPRINT_NODES) + " bytes");
+    }
+
+    private static Node buildNode(int i) {
+        Node.Builder builder;
+        switch (i % 4) {
+            case 0:
+                builder = NodeFactory.newBuilder("group.group" + i);
+                break;
+            case 1:
+                builder = NodeFactory.makeMetaNode("key" + i, "value");
+                break;
+            case 2:
+                builder = NodeFactory.makePrefixNode(i % 100, "&7[Prefix " + i + "]");
+                break;
+            default:
+                builder = NodeFactory.newBuilder("essentials.command." + i);
+                break;
+        }
+
+        if (i % 3 == 0) {
+            builder.setServer("server" + (i % 8));
+        }
+        if (i % 5 == 0) {
+            builder.setWorld("world" + (i % 4));
+        }
+        return builder.build();
+    }
+
+    private int built = 0;
+    private int looked = 0;
+    private Node[] lookups;
+    private Set<Node> set;
+
+    @Setup
+    public void setup() {
+        lookups = new Node[LOOKUP_NODES];
+        for (int i = 0; i < LOOKUP_NODES; i++) {
+            lookups[i] = buildNode(i);
+        }
+        set = new HashSet<>();
+        for (int i = 0; i < LOOKUP_NODES; i += 2) {
+            set.add(lookups[i]);
+        }
+    }
+
+    @Benchmark
+    public Node build() {
+        // offset past the lookup nodes, so every node built is distinct
+        return buildNode(LOOKUP_NODES + built++);
+    }
+
+    @Benchmark
+    public boolean hashSetContains() {
+        // half of the lookups are in the set
+        return set.contains(lookups[looked++ % LOOKUP_NODES]);
+    }
+
+}
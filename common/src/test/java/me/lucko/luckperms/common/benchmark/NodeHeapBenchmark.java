@@ -0,0 +1,92 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.benchmark;
+
+import me.lucko.luckperms.api.Node;
+import me.lucko.luckperms.common.core.NodeModel;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Measures the heap retained by the nodes of users loaded from storage.
+ *
+ * <p>Loads {@value #USERS} users, each holding {@value #SHARED_NODES} nodes which every user holds, and
+ * {@value #UNIQUE_NODES} nodes of their own. Nodes are read through {@link NodeModel#toNode()}, as the storage
+ * backings do, and every string is copied first, so any sharing between users comes from the code being measured.
+ * Run it against a commit and its parent to compare them.</p>
+ *
+ * <p>Run with:</p>
+ * <pre>
+ * mvn -P benchmarks -pl common -am install
+ * mvn -P benchmarks -pl common org.codehaus.mojo:exec-maven-plugin:1.6.0:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=me.lucko.luckperms.common.benchmark.NodeHeapBenchmark
+ * </pre>
+ */
+public final class NodeHeapBenchmark {
+    private static final int USERS = 2000;
+    private static final int SHARED_NODES = 41;
+    private static final int UNIQUE_NODES = 3;
+
+    public static void main(String[] args) {
+        List<Set<Node>> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            Set<Node> nodes = new HashSet<>();
+
+            nodes.add(load("group.default", "global", "global"));
+            for (int j = 1; j < SHARED_NODES; j++) {
+                nodes.add(load("essentials.command." + j, j % 3 == 0 ? "survival" : "global", j % 5 == 0 ? "world_nether" : "global"));
+            }
+            for (int j = 0; j < UNIQUE_NODES; j++) {
+                nodes.add(load("plots.plot." + i + "." + j, "global", "global"));
+            }
+
+            users.add(nodes);
+        }
+
+        // nodes shared between users are only counted once. the sets holding the nodes are counted too, but
+        // they have the same footprint with or without interning.
+        long total = GraphLayout.parseInstance(users).totalSize();
+
+        System.out.println("Users: " + USERS + ", nodes per user: " + (SHARED_NODES + UNIQUE_NODES));
+        System.out.println("Total retained: " + total + " bytes");
+        System.out.println("Retained per user: " + (total / USERS) + " bytes");
+    }
+
+    private static Node load(String permission, String server, String world) {
+        return NodeModel.deserialize(copy(permission), true, copy(server), copy(world), 0L, copy("{}")).toNode();
+    }
+
+    // strings read from storage are always new instances
+    private static String copy(String s) {
+        return new String(s.toCharArray());
+    }
+
+}
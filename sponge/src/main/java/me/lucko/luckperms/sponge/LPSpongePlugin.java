@@ -34,6 +34,7 @@ import me.lucko.luckperms.api.LuckPermsApi;
 import me.lucko.luckperms.api.PlatformType;
 import me.lucko.luckperms.common.api.ApiHandler;
 import me.lucko.luckperms.common.api.ApiProvider;
+import me.lucko.luckperms.common.caching.ProfileCache;
 import me.lucko.luckperms.common.caching.handlers.CachedStateManager;
 import me.lucko.luckperms.common.calculators.CalculatorFactory;
 import me.lucko.luckperms.common.commands.abstraction.Command;
@@ -68,6 +69,7 @@ import me.lucko.luckperms.common.utils.FileWatcher;
 import me.lucko.luckperms.common.utils.LoggerImpl;
 import me.lucko.luckperms.common.verbose.VerboseHandler;
 import me.lucko.luckperms.sponge.commands.SpongeMainCommand;
+import me.lucko.luckperms.sponge.contexts.SpongeContextManager;
 import me.lucko.luckperms.sponge.contexts.WorldCalculator;
 import me.lucko.luckperms.sponge.managers.SpongeGroupManager;
 import me.lucko.luckperms.sponge.managers.SpongeUserManager;
@@ -158,6 +160,7 @@ public class LPSpongePlugin implements LuckPermsPlugin {
     private LuckPermsService service;
     private LocaleManager localeManager;
     private CachedStateManager cachedStateManager;
+    private ProfileCache profileCache;
     private ContextManager<Subject> contextManager;
     private CalculatorFactory calculatorFactory;
     private BufferedRequest<Void> updateTaskBuffer;
@@ -265,8 +268,9 @@ public class LPSpongePlugin implements LuckPermsPlugin {
         trackManager = new GenericTrackManager(this);
         calculatorFactory = new SpongeCalculatorFactory(this);
         cachedStateManager = new CachedStateManager(this);
+        profileCache = new ProfileCache();
 
-        contextManager = new ContextManager<>();
+        contextManager = new SpongeContextManager(this);
         contextManager.registerCalculator(new WorldCalculator(this));
 
         StaticCalculator<Subject> staticCalculator = new StaticCalculator<>(getConfiguration());
@@ -368,6 +372,14 @@ public class LPSpongePlugin implements LuckPermsPlugin {
         service.invalidateParentCaches();
     }
 
+    @Override
+    public void onInheritancesInvalidated() {
+        LuckPermsService service = this.service;
+        if (service != null) {
+            service.invalidateParentCaches();
+        }
+    }
+
     @Override
     public File getDataDirectory() {
         File base = configDir.toFile().getParentFile().getParentFile();
@@ -397,15 +409,7 @@ public class LPSpongePlugin implements LuckPermsPlugin {
         if (player == null) {
             return null;
         }
-        return new Contexts(
-                getContextManager().getApplicableContext(player),
-                getConfiguration().get(ConfigKeys.INCLUDING_GLOBAL_PERMS),
-                getConfiguration().get(ConfigKeys.INCLUDING_GLOBAL_WORLD_PERMS),
-                true,
-                getConfiguration().get(ConfigKeys.APPLYING_GLOBAL_GROUPS),
-                getConfiguration().get(ConfigKeys.APPLYING_GLOBAL_WORLD_GROUPS),
-                false
-        );
+        return contextManager.getApplicableContexts(player);
     }
 
     @Override
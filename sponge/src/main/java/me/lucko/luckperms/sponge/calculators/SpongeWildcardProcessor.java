@@ -27,38 +27,21 @@ package me.lucko.luckperms.sponge.calculators;
 
 import me.lucko.luckperms.api.Tristate;
 import me.lucko.luckperms.common.calculators.PermissionProcessor;
+import me.lucko.luckperms.common.calculators.processors.SegmentTrie;
 
 import java.util.Map;
 
 public class SpongeWildcardProcessor implements PermissionProcessor {
-    private Map<String, Boolean> map = null;
+    private volatile SegmentTrie trie = SegmentTrie.empty();
 
     @Override
     public Tristate hasPermission(String permission) {
-        String node = permission;
-
-        while (true) {
-            int endIndex = node.lastIndexOf('.');
-            if (endIndex == -1) {
-                break;
-            }
-
-            node = node.substring(0, endIndex);
-            if (!node.isEmpty()) {
-                Boolean b = map.get(node);
-                if (b != null) {
-                    return Tristate.fromBoolean(b);
-                }
-            }
-        }
-
-        return Tristate.UNDEFINED;
+        Boolean b = trie.getDeepestPrefix(permission);
+        return b == null ? Tristate.UNDEFINED : Tristate.fromBoolean(b);
     }
 
     @Override
     public void updateBacking(Map<String, Boolean> map) {
-        if (this.map == null) {
-            this.map = map;
-        }
+        this.trie = SegmentTrie.compile(map);
     }
 }
@@ -39,6 +39,7 @@ import com.google.common.collect.Maps;
 import me.lucko.luckperms.api.HeldPermission;
 import me.lucko.luckperms.api.Tristate;
 import me.lucko.luckperms.api.context.ImmutableContextSet;
+import me.lucko.luckperms.common.caching.handlers.UserReference;
 import me.lucko.luckperms.common.core.UserIdentifier;
 import me.lucko.luckperms.common.core.model.User;
 import me.lucko.luckperms.common.managers.UserManager;
@@ -151,6 +152,7 @@ public class SpongeUserManager implements UserManager, LPSubjectCollection {
     public void unload(UserIdentifier id) {
         if (id != null) {
             objects.invalidate(id);
+            plugin.getCachedStateManager().clear(UserReference.of(id));
         }
     }
 
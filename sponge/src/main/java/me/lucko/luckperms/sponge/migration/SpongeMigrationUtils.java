@@ -27,6 +27,7 @@ package me.lucko.luckperms.sponge.migration;
 
 import lombok.experimental.UtilityClass;
 
+import me.lucko.luckperms.api.Node;
 import me.lucko.luckperms.api.context.ContextSet;
 import me.lucko.luckperms.common.commands.impl.migration.MigrationUtils;
 import me.lucko.luckperms.common.core.NodeFactory;
@@ -40,6 +41,7 @@ import org.spongepowered.api.service.permission.Subject;
 import org.spongepowered.api.service.permission.SubjectData;
 import org.spongepowered.api.util.Tristate;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -52,6 +54,9 @@ public class SpongeMigrationUtils {
             MigrationUtils.setGroupWeight((Group) holder, priority);
         }
 
+        // the nodes are collected and set in a single operation
+        List<Node> nodes = new ArrayList<>();
+
         // Migrate permissions
         Map<Set<Context>, Map<String, Boolean>> perms = subject.getSubjectData().getAllPermissions();
         for (Map.Entry<Set<Context>, Map<String, Boolean>> e : perms.entrySet()) {
@@ -62,7 +67,7 @@ public class SpongeMigrationUtils {
                     continue;
                 }
 
-                holder.setPermission(NodeFactory.newBuilder(perm.getKey()).withExtraContext(context).setValue(perm.getValue()).build());
+                nodes.add(NodeFactory.newBuilder(perm.getKey()).withExtraContext(context).setValue(perm.getValue()).build());
             }
         }
 
@@ -77,11 +82,11 @@ public class SpongeMigrationUtils {
                 }
 
                 if (opt.getKey().equalsIgnoreCase("prefix")) {
-                    holder.setPermission(NodeFactory.makePrefixNode(priority, opt.getValue()).withExtraContext(context).setValue(true).build());
+                    nodes.add(NodeFactory.makePrefixNode(priority, opt.getValue()).withExtraContext(context).setValue(true).build());
                 } else if (opt.getKey().equalsIgnoreCase("suffix")) {
-                    holder.setPermission(NodeFactory.makeSuffixNode(priority, opt.getValue()).withExtraContext(context).setValue(true).build());
+                    nodes.add(NodeFactory.makeSuffixNode(priority, opt.getValue()).withExtraContext(context).setValue(true).build());
                 } else {
-                    holder.setPermission(NodeFactory.makeMetaNode(opt.getKey(), opt.getValue()).withExtraContext(context).setValue(true).build());
+                    nodes.add(NodeFactory.makeMetaNode(opt.getKey(), opt.getValue()).withExtraContext(context).setValue(true).build());
                 }
             }
         }
@@ -96,9 +101,11 @@ public class SpongeMigrationUtils {
                     continue; // LuckPerms does not support persisting other subject types.
                 }
 
-                holder.setPermission(NodeFactory.newBuilder("group." + MigrationUtils.standardizeName(s.getIdentifier())).withExtraContext(context).setValue(true).build());
+                nodes.add(NodeFactory.newBuilder("group." + MigrationUtils.standardizeName(s.getIdentifier())).withExtraContext(context).setValue(true).build());
             }
         }
+
+        holder.setPermissions(nodes);
     }
 
     public static void migrateSubjectData(SubjectData from, SubjectData to) {
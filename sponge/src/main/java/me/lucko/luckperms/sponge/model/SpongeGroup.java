@@ -72,6 +72,16 @@ public class SpongeGroup extends Group {
         return this.spongeData;
     }
 
+    @Override
+    public void invalidateInheritanceCaches() {
+        super.invalidateInheritanceCaches();
+
+        // the subject resolves inherited nodes, so its caches go stale along with ours
+        if (spongeData != null) {
+            spongeData.invalidateCaches();
+        }
+    }
+
     public static class GroupSubject implements LPSubject {
 
         @Getter
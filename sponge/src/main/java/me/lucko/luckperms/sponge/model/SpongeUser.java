@@ -27,12 +27,15 @@ package me.lucko.luckperms.sponge.model;
 
 import lombok.Getter;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 
 import me.lucko.luckperms.api.Tristate;
 import me.lucko.luckperms.api.caching.MetaData;
 import me.lucko.luckperms.api.context.ImmutableContextSet;
+import me.lucko.luckperms.common.contexts.ContextSnapshot;
 import me.lucko.luckperms.common.core.model.User;
 import me.lucko.luckperms.sponge.LPSpongePlugin;
 import me.lucko.luckperms.sponge.service.LuckPermsService;
@@ -46,6 +49,7 @@ import org.spongepowered.api.Sponge;
 import org.spongepowered.api.command.CommandSource;
 import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.service.permission.PermissionService;
+import org.spongepowered.api.service.permission.Subject;
 
 import co.aikar.timings.Timing;
 
@@ -80,6 +84,9 @@ public class SpongeUser extends User {
         @Getter
         private final LuckPermsSubjectData transientSubjectData;
 
+        // a single proxy instance, used as the key for this users contexts in the ContextManager
+        private final Supplier<Subject> spongeSubject = Suppliers.memoize(LPSubject.super::sponge);
+
         private UserSubject(LPSpongePlugin plugin, SpongeUser parent) {
             this.parent = parent;
             this.plugin = plugin;
@@ -87,6 +94,15 @@ public class SpongeUser extends User {
             this.transientSubjectData = new LuckPermsSubjectData(false, plugin.getService(), parent, this);
         }
 
+        @Override
+        public Subject sponge() {
+            return spongeSubject.get();
+        }
+
+        private ContextSnapshot getContextSnapshot() {
+            return plugin.getContextManager().getSnapshot(sponge(), parent);
+        }
+
         @Override
         public String getIdentifier() {
             return plugin.getUuidCache().getExternalUUID(parent.getUuid()).toString();
@@ -117,6 +133,13 @@ public class SpongeUser extends User {
         @Override
         public Tristate getPermissionValue(ImmutableContextSet contexts, String permission) {
             try (Timing ignored = plugin.getTimings().time(LPTiming.USER_GET_PERMISSION_VALUE)) {
+                // only compare against a snapshot which has already been built for the subjects active contexts,
+                // lookups in other contexts (or for offline users) shouldn't cause one to be calculated.
+                ContextSnapshot snapshot = plugin.getContextManager().getExistingSnapshot(sponge(), parent);
+                if (snapshot != null && snapshot.getContexts().getContexts().equals(contexts)) {
+                    return snapshot.getPermissionData().getPermissionValue(permission);
+                }
+
                 return parent.getUserData().getPermissionData(plugin.getService().calculateContexts(contexts)).getPermissionValue(permission);
             }
         }
@@ -183,7 +206,7 @@ public class SpongeUser extends User {
         @Override
         public ImmutableContextSet getActiveContextSet() {
             try (Timing ignored = plugin.getTimings().time(LPTiming.USER_GET_ACTIVE_CONTEXTS)) {
-                return plugin.getContextManager().getApplicableContext(this.sponge()).makeImmutable();
+                return getContextSnapshot().getContexts().getContexts().makeImmutable();
             }
         }
     }
@@ -257,7 +257,7 @@ public class LuckPermsService implements LPPermissionService {
 
     @Override
     public Contexts calculateContexts(ImmutableContextSet contextSet) {
-        return new Contexts(
+        return Contexts.of(
                 contextSet,
                 plugin.getConfiguration().get(ConfigKeys.INCLUDING_GLOBAL_PERMS),
                 plugin.getConfiguration().get(ConfigKeys.INCLUDING_GLOBAL_WORLD_PERMS),
@@ -481,7 +481,8 @@ public class LuckPermsSubjectData implements LPSubjectData {
                 User user = ((User) t);
                 return user.getRefreshBuffer().request();
             } else {
-                return service.getPlugin().getUpdateTaskBuffer().request();
+                // inheritors of the group are refreshed when it changes
+                return CompletableFuture.completedFuture(null);
             }
         } else {
             if (t instanceof User) {
@@ -489,7 +490,7 @@ public class LuckPermsSubjectData implements LPSubjectData {
                 return service.getPlugin().getStorage().saveUser(user).thenCombineAsync(user.getRefreshBuffer().request(), (b, v) -> v, service.getPlugin().getScheduler().getAsyncExecutor());
             } else {
                 Group group = ((Group) t);
-                return service.getPlugin().getStorage().saveGroup(group).thenCombineAsync(service.getPlugin().getUpdateTaskBuffer().request(), (b, v) -> v, service.getPlugin().getScheduler().getAsyncExecutor());
+                return service.getPlugin().getStorage().saveGroup(group).thenApply(b -> null);
             }
         }
     }